@@ -1,5 +1,7 @@
 package com.pavel.crypto.core;
 
+import java.nio.ByteBuffer;
+
 public interface BlockCipher {
 
     int getBlockSize();
@@ -9,4 +11,47 @@ public interface BlockCipher {
     void encryptBlock(byte[] in, int inOff, byte[] out, int outOff);
 
     void decryptBlock(byte[] in, int inOff, byte[] out, int outOff);
+
+    // Зашифровать count подряд идущих блоков за один вызов
+    default void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        int blockSize = getBlockSize();
+
+        int i = 0;
+        while (i < count) {
+            encryptBlock(in, inOff + i * blockSize, out, outOff + i * blockSize);
+            i = i + 1;
+        }
+    }
+
+    // Варианты для ByteBuffer (в т.ч. direct). Смещения абсолютные, position/limit не меняются.
+
+    default void encryptBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
+        if (in.hasArray() && out.hasArray()) {
+            encryptBlock(in.array(), in.arrayOffset() + inOff,
+                    out.array(), out.arrayOffset() + outOff);
+            return;
+        }
+
+        int blockSize = getBlockSize();
+        byte[] block = new byte[blockSize];
+
+        in.get(inOff, block, 0, blockSize);
+        encryptBlock(block, 0, block, 0);
+        out.put(outOff, block, 0, blockSize);
+    }
+
+    default void decryptBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
+        if (in.hasArray() && out.hasArray()) {
+            decryptBlock(in.array(), in.arrayOffset() + inOff,
+                    out.array(), out.arrayOffset() + outOff);
+            return;
+        }
+
+        int blockSize = getBlockSize();
+        byte[] block = new byte[blockSize];
+
+        in.get(inOff, block, 0, blockSize);
+        decryptBlock(block, 0, block, 0);
+        out.put(outOff, block, 0, blockSize);
+    }
 }
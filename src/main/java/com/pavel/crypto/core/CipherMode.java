@@ -1,10 +1,72 @@
 package com.pavel.crypto.core;
 
+import java.nio.ByteBuffer;
+
 public interface CipherMode {
 
+    // Размер промежуточного массива для пачек direct-буферов
+    int BUFFER_CHUNK_BYTES = 4096;
+
     int getBlockSize();
 
     void init(boolean forEncryption, BlockCipher cipher, byte[] iv);
 
     void processBlock(byte[] in, int inOff, byte[] out, int outOff);
+
+    // Обработать count подряд идущих блоков за один вызов
+    default void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        int blockSize = getBlockSize();
+
+        int i = 0;
+        while (i < count) {
+            processBlock(in, inOff + i * blockSize, out, outOff + i * blockSize);
+            i = i + 1;
+        }
+    }
+
+    // Вариант для ByteBuffer (в т.ч. direct). Смещения абсолютные, position/limit не меняются.
+    default void processBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
+        if (in.hasArray() && out.hasArray()) {
+            processBlock(in.array(), in.arrayOffset() + inOff,
+                    out.array(), out.arrayOffset() + outOff);
+            return;
+        }
+
+        int blockSize = getBlockSize();
+        byte[] inBlock = new byte[blockSize];
+        byte[] outBlock = new byte[blockSize];
+
+        in.get(inOff, inBlock, 0, blockSize);
+        processBlock(inBlock, 0, outBlock, 0);
+        out.put(outOff, outBlock, 0, blockSize);
+    }
+
+    // Обработать count подряд идущих блоков ByteBuffer за один вызов.
+    // Direct-буферы идут через один промежуточный массив на вызов, а не на блок,
+    // и попадают в пакетный byte[]-путь режима.
+    default void processBlocks(ByteBuffer in, int inOff, ByteBuffer out, int outOff, int count) {
+        int blockSize = getBlockSize();
+
+        if (in.hasArray() && out.hasArray()) {
+            processBlocks(in.array(), in.arrayOffset() + inOff,
+                    out.array(), out.arrayOffset() + outOff, count);
+            return;
+        }
+
+        int chunkBlocks = Math.max(1, BUFFER_CHUNK_BYTES / blockSize);
+        byte[] chunk = new byte[Math.min(count, chunkBlocks) * blockSize];
+
+        int done = 0;
+        while (done < count) {
+            int batch = Math.min(chunkBlocks, count - done);
+            int offset = done * blockSize;
+            int length = batch * blockSize;
+
+            in.get(inOff + offset, chunk, 0, length);
+            processBlocks(chunk, 0, chunk, 0, batch);
+            out.put(outOff + offset, chunk, 0, length);
+
+            done = done + batch;
+        }
+    }
 }
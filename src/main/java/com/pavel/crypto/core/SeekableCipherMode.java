@@ -0,0 +1,11 @@
+package com.pavel.crypto.core;
+
+/**
+ * Режим, в котором состояние для блока с любым номером вычисляется сразу,
+ * без обработки предыдущих блоков (CTR, RandomDelta).
+ */
+public interface SeekableCipherMode extends CipherMode {
+
+    // Следующий processBlock(s) обработает блок с номером blockIndex (0 — первый блок после IV)
+    void seek(long blockIndex);
+}
@@ -0,0 +1,295 @@
+package com.pavel.crypto.hybrid;
+
+import com.pavel.crypto.core.BlockCipher;
+import com.pavel.crypto.core.CipherMode;
+import com.pavel.crypto.gf256.Gf256Service;
+import com.pavel.crypto.modes.StreamMode;
+import com.pavel.crypto.padding.NoPadding;
+import com.pavel.crypto.rijndael.RijndaelCipher;
+import com.pavel.crypto.rsa.RsaPrivateKey;
+import com.pavel.crypto.rsa.RsaPublicKey;
+import com.pavel.crypto.rsa.RsaService;
+import com.pavel.crypto.symmetric.SymmetricCryptoService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Гибридное шифрование файлов: RSA только для сеансового ключа, данные — Rijndael.
+ *
+ * Формат файла:
+ *   "HYB1" | длина обёрнутого ключа (4 байта, big-endian) | обёрнутый ключ | шифртекст.
+ * Обёрнутый ключ — RSA(0x01 || K || IV), ведущий 0x01 сохраняет ведущие нули K.
+ * Данные шифруются Rijndael-128 в потоковом режиме поверх CTR, без паддинга.
+ */
+public class HybridFileCryptoService implements AutoCloseable {
+
+    private static final byte[] MAGIC = {'H', 'Y', 'B', '1'};
+
+    private static final int KEY_BYTES = 16;
+    private static final int IV_BYTES = 16;
+    private static final byte AES_MODULUS = (byte) 0x1B;
+
+    // Обёрнутый ключ не может быть длиннее модуля RSA разумного размера
+    private static final int MAX_WRAPPED_KEY_BYTES = 8192;
+
+    private final RsaService rsaService;
+    private final SymmetricCryptoService symmetricService;
+    private final ExecutorService executor;
+    private final SecureRandom random;
+
+    public HybridFileCryptoService(RsaService rsaService,
+                                   final Gf256Service gf,
+                                   int threadCount) {
+        if (rsaService == null) {
+            throw new IllegalArgumentException("rsaService must not be null");
+        }
+
+        if (gf == null) {
+            throw new IllegalArgumentException("gf must not be null");
+        }
+
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("threadCount must be >= 1");
+        }
+
+        Supplier<BlockCipher> cipherSupplier = new Supplier<BlockCipher>() {
+            @Override
+            public BlockCipher get() {
+                return new RijndaelCipher(128, KEY_BYTES * 8, gf, AES_MODULUS);
+            }
+        };
+
+        Supplier<CipherMode> modeSupplier = new Supplier<CipherMode>() {
+            @Override
+            public CipherMode get() {
+                return new StreamMode(StreamMode.Keystream.CTR);
+            }
+        };
+
+        this.rsaService = rsaService;
+        this.symmetricService = new SymmetricCryptoService(cipherSupplier, modeSupplier, new NoPadding(), 1);
+        this.executor = Executors.newFixedThreadPool(threadCount);
+        this.random = new SecureRandom();
+    }
+
+    public void encryptFile(Path input, Path output, RsaPublicKey recipient) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null");
+        }
+
+        if (recipient == null) {
+            throw new IllegalArgumentException("recipient must not be null");
+        }
+
+        byte[] key = new byte[KEY_BYTES];
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(key);
+        random.nextBytes(iv);
+
+        byte[] wrapped = wrapKey(key, iv, recipient);
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 4 + wrapped.length);
+            header.put(MAGIC);
+            header.putInt(wrapped.length);
+            header.put(wrapped);
+            header.flip();
+
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+
+            symmetricService.encryptStream(in, out, key, iv);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+            Arrays.fill(iv, (byte) 0);
+        }
+    }
+
+    public void decryptFile(Path input, Path output, RsaPrivateKey privateKey) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null");
+        }
+
+        if (privateKey == null) {
+            throw new IllegalArgumentException("privateKey must not be null");
+        }
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+
+            ByteBuffer prefix = ByteBuffer.allocate(MAGIC.length + 4);
+            readFully(in, prefix);
+            prefix.flip();
+
+            byte[] magic = new byte[MAGIC.length];
+            prefix.get(magic);
+
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a hybrid-encrypted file");
+            }
+
+            int wrappedLen = prefix.getInt();
+
+            if (wrappedLen <= 0 || wrappedLen > MAX_WRAPPED_KEY_BYTES) {
+                throw new IOException("Invalid wrapped key length: " + wrappedLen);
+            }
+
+            ByteBuffer wrapped = ByteBuffer.allocate(wrappedLen);
+            readFully(in, wrapped);
+
+            // Одна RSA-операция, дальше — только симметричный шифр
+            byte[] keyAndIv = unwrapKey(wrapped.array(), privateKey);
+            byte[] key = Arrays.copyOfRange(keyAndIv, 0, KEY_BYTES);
+            byte[] iv = Arrays.copyOfRange(keyAndIv, KEY_BYTES, KEY_BYTES + IV_BYTES);
+
+            try {
+                symmetricService.decryptStream(in, out, key, iv);
+            } finally {
+                Arrays.fill(keyAndIv, (byte) 0);
+                Arrays.fill(key, (byte) 0);
+                Arrays.fill(iv, (byte) 0);
+            }
+        }
+    }
+
+    // Async-обёртки для файлов
+
+    public Future<Void> encryptFileAsync(final Path input,
+                                         final Path output,
+                                         final RsaPublicKey recipient) {
+        Callable<Void> task = new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                encryptFile(input, output, recipient);
+                return null;
+            }
+        };
+
+        return executor.submit(task);
+    }
+
+    public Future<Void> decryptFileAsync(final Path input,
+                                         final Path output,
+                                         final RsaPrivateKey privateKey) {
+        Callable<Void> task = new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                decryptFile(input, output, privateKey);
+                return null;
+            }
+        };
+
+        return executor.submit(task);
+    }
+
+    // Вспомогательные методы
+
+    private byte[] wrapKey(byte[] key, byte[] iv, RsaPublicKey recipient) {
+        byte[] message = new byte[1 + KEY_BYTES + IV_BYTES];
+        message[0] = 0x01;
+        System.arraycopy(key, 0, message, 1, KEY_BYTES);
+        System.arraycopy(iv, 0, message, 1 + KEY_BYTES, IV_BYTES);
+
+        BigInteger n = recipient.getModulus();
+        BigInteger m = new BigInteger(1, message);
+
+        Arrays.fill(message, (byte) 0);
+
+        if (m.compareTo(n) >= 0) {
+            throw new IllegalArgumentException("RSA modulus is too small to wrap the session key");
+        }
+
+        BigInteger c = rsaService.encrypt(m, recipient);
+
+        int keyBytes = (n.bitLength() + 7) / 8;
+        return toFixedLengthBytes(c, keyBytes);
+    }
+
+    private byte[] unwrapKey(byte[] wrapped, RsaPrivateKey privateKey) throws IOException {
+        BigInteger c = new BigInteger(1, wrapped);
+
+        if (c.compareTo(privateKey.getModulus()) >= 0) {
+            throw new IOException("Wrapped key does not match the private key");
+        }
+
+        BigInteger m = rsaService.decrypt(c, privateKey);
+
+        // Ожидаем ровно 0x01 || K || IV
+        if (m.bitLength() != (KEY_BYTES + IV_BYTES) * 8 + 1) {
+            throw new IOException("Wrapped key does not match the private key");
+        }
+
+        byte[] message = toFixedLengthBytes(m, 1 + KEY_BYTES + IV_BYTES);
+
+        byte[] keyAndIv = Arrays.copyOfRange(message, 1, message.length);
+        Arrays.fill(message, (byte) 0);
+
+        return keyAndIv;
+    }
+
+    private void readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                throw new IOException("Unexpected end of hybrid file header");
+            }
+        }
+    }
+
+    private byte[] toFixedLengthBytes(BigInteger value, int length) {
+        byte[] tmp = value.toByteArray();
+
+        // Пропускаем возможный лишний ведущий байт знака
+        int start = 0;
+        if (tmp.length > 1 && tmp[0] == 0) {
+            start = 1;
+        }
+
+        int valueLen = tmp.length - start;
+
+        if (valueLen > length) {
+            throw new IllegalArgumentException(
+                    "value does not fit in " + length + " bytes (got " + valueLen + ")"
+            );
+        }
+
+        byte[] result = new byte[length];
+        System.arraycopy(tmp, start, result, length - valueLen, valueLen);
+
+        return result;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        symmetricService.close();
+    }
+}
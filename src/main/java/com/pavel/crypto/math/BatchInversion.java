@@ -0,0 +1,231 @@
+package com.pavel.crypto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Обращение многих чисел по одному модулю приёмом Монтгомери.
+ *
+ * Префиксные произведения p_i = v_0 * ... * v_i, одно обращение p_(N-1)
+ * расширенным алгоритмом Евклида, затем обратный проход:
+ * v_i^(-1) = p_(i-1) * (p_i)^(-1), (p_(i-1))^(-1) = v_i * (p_i)^(-1).
+ * Всего 3(N - 1) умножений по модулю вместо N обращений.
+ */
+final class BatchInversion {
+
+    // Меньше этого числа элементов на задачу делить работу нет смысла
+    private static final int PARALLEL_MIN_CHUNK = 64;
+
+    private BatchInversion() {
+    }
+
+    static BigInteger[] invert(NumberTheoryService numberTheory, BigInteger[] values, BigInteger modulus) {
+        BigInteger[] reduced = reduce(values, modulus);
+        BigInteger[] result = new BigInteger[reduced.length];
+
+        if (reduced.length == 0) {
+            return result;
+        }
+
+        BigInteger[] prefix = new BigInteger[reduced.length];
+        BigInteger total = prefixProducts(reduced, 0, reduced.length, modulus, prefix);
+
+        BigInteger inverse = inverseOrFail(numberTheory, total, reduced, 0, reduced.length, modulus);
+
+        backPropagate(reduced, prefix, 0, reduced.length, inverse, modulus, result);
+
+        return result;
+    }
+
+    /**
+     * Отрезки обрабатываются параллельно: в каждом свои префиксные произведения,
+     * произведения отрезков обращаются тем же приёмом (одно обращение на всё),
+     * затем каждый отрезок параллельно делает обратный проход.
+     */
+    static BigInteger[] invertParallel(final NumberTheoryService numberTheory,
+                                       BigInteger[] values,
+                                       final BigInteger modulus,
+                                       ExecutorService executor,
+                                       int parallelism) {
+        final BigInteger[] reduced = reduce(values, modulus);
+        final BigInteger[] result = new BigInteger[reduced.length];
+
+        int chunks = Math.min(parallelism, reduced.length / PARALLEL_MIN_CHUNK);
+
+        if (chunks <= 1) {
+            return invert(numberTheory, values, modulus);
+        }
+
+        final BigInteger[] prefix = new BigInteger[reduced.length];
+        final int[] bounds = new int[chunks + 1];
+
+        int c = 0;
+        while (c <= chunks) {
+            bounds[c] = (int) ((long) reduced.length * c / chunks);
+            c = c + 1;
+        }
+
+        // Проход 1: префиксные произведения внутри отрезков
+        List<Callable<BigInteger>> prefixTasks = new ArrayList<>();
+
+        c = 0;
+        while (c < chunks) {
+            final int from = bounds[c];
+            final int to = bounds[c + 1];
+
+            prefixTasks.add(new Callable<BigInteger>() {
+                @Override
+                public BigInteger call() {
+                    return prefixProducts(reduced, from, to, modulus, prefix);
+                }
+            });
+
+            c = c + 1;
+        }
+
+        BigInteger[] chunkProducts = new BigInteger[chunks];
+
+        List<Future<BigInteger>> prefixFutures = invokeAll(executor, prefixTasks);
+
+        c = 0;
+        while (c < chunks) {
+            chunkProducts[c] = await(prefixFutures.get(c));
+            c = c + 1;
+        }
+
+        // Обратные к произведениям отрезков — тот же приём, одно обращение
+        final BigInteger[] chunkInverses;
+
+        try {
+            chunkInverses = invert(numberTheory, chunkProducts, modulus);
+        } catch (IllegalArgumentException e) {
+            // Найти конкретный необратимый элемент для сообщения
+            inverseOrFail(numberTheory, BigInteger.ZERO, reduced, 0, reduced.length, modulus);
+            throw e;
+        }
+
+        // Проход 2: обратный проход внутри отрезков
+        List<Callable<Void>> backTasks = new ArrayList<>();
+
+        c = 0;
+        while (c < chunks) {
+            final int from = bounds[c];
+            final int to = bounds[c + 1];
+            final BigInteger inverse = chunkInverses[c];
+
+            backTasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    backPropagate(reduced, prefix, from, to, inverse, modulus, result);
+                    return null;
+                }
+            });
+
+            c = c + 1;
+        }
+
+        for (Future<Void> future : invokeAll(executor, backTasks)) {
+            await(future);
+        }
+
+        return result;
+    }
+
+    private static BigInteger[] reduce(BigInteger[] values, BigInteger modulus) {
+        BigInteger[] reduced = new BigInteger[values.length];
+
+        int i = 0;
+        while (i < values.length) {
+            if (values[i] == null) {
+                throw new IllegalArgumentException("values must not contain null");
+            }
+
+            reduced[i] = values[i].mod(modulus);
+            i = i + 1;
+        }
+
+        return reduced;
+    }
+
+    /**
+     * prefix[i] = v_from * ... * v_i для i из [from, to); возвращает произведение отрезка.
+     */
+    private static BigInteger prefixProducts(BigInteger[] values, int from, int to,
+                                             BigInteger modulus, BigInteger[] prefix) {
+        BigInteger acc = values[from];
+        prefix[from] = acc;
+
+        int i = from + 1;
+        while (i < to) {
+            acc = acc.multiply(values[i]).mod(modulus);
+            prefix[i] = acc;
+            i = i + 1;
+        }
+
+        return acc;
+    }
+
+    /**
+     * inverse — обратное к произведению отрезка [from, to).
+     */
+    private static void backPropagate(BigInteger[] values, BigInteger[] prefix, int from, int to,
+                                      BigInteger inverse, BigInteger modulus, BigInteger[] result) {
+        BigInteger inv = inverse;
+
+        int i = to - 1;
+        while (i > from) {
+            result[i] = inv.multiply(prefix[i - 1]).mod(modulus);
+            inv = inv.multiply(values[i]).mod(modulus);
+            i = i - 1;
+        }
+
+        result[from] = inv;
+    }
+
+    /**
+     * Обратное к product; если его нет, ищется первый необратимый элемент отрезка.
+     */
+    private static BigInteger inverseOrFail(NumberTheoryService numberTheory, BigInteger product,
+                                            BigInteger[] values, int from, int to, BigInteger modulus) {
+        ExtendedGcdResult egcd = numberTheory.extendedGcd(product, modulus);
+
+        if (egcd.getGcd().equals(BigInteger.ONE)) {
+            return egcd.getX().mod(modulus);
+        }
+
+        int i = from;
+        while (i < to) {
+            if (!numberTheory.gcd(values[i], modulus).equals(BigInteger.ONE)) {
+                throw new IllegalArgumentException("values[" + i + "] is not invertible modulo modulus");
+            }
+            i = i + 1;
+        }
+
+        throw new IllegalArgumentException("Product of values is not invertible modulo modulus");
+    }
+
+    private static <T> List<Future<T>> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+        try {
+            return executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch inversion interrupted", e);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch inversion interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch inversion task failed", e.getCause());
+        }
+    }
+}
@@ -1,39 +1,66 @@
 package com.pavel.crypto.math;
 
 import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 public class DefaultNumberTheoryService implements NumberTheoryService {
 
-    @Override
-    public int legendreSymbol(BigInteger a, BigInteger p) {
-        if (p == null || a == null) {
-            throw new IllegalArgumentException("Arguments must not be null");
-        }
+    /**
+     * Алгоритм modPow: BINARY — исходный эталон (квадрат-умножение с делением
+     * на каждом шаге), MONTGOMERY_WINDOW — форма Монтгомери и скользящее окно.
+     */
+    public enum ModPowAlgorithm {
+        BINARY,
+        MONTGOMERY_WINDOW
+    }
 
-        if (!p.testBit(0)) {
-            throw new IllegalArgumentException("p must be odd");
-        }
+    // Контексты Монтгомери последних модулей (повторные операции под одним ключом)
+    private static final int MAX_CACHED_CONTEXTS = 16;
 
-        BigInteger aMod = a.mod(p);
+    private final ModPowAlgorithm modPowAlgorithm;
+    private final Map<BigInteger, MontgomeryContext> contexts;
 
-        if (aMod.signum() == 0) {
-            return 0;
+    public DefaultNumberTheoryService() {
+        this(ModPowAlgorithm.MONTGOMERY_WINDOW);
+    }
+
+    public DefaultNumberTheoryService(ModPowAlgorithm modPowAlgorithm) {
+        if (modPowAlgorithm == null) {
+            throw new IllegalArgumentException("modPowAlgorithm must not be null");
         }
 
-        BigInteger exponent = p.subtract(BigInteger.ONE).shiftRight(1);
-        BigInteger result = modPow(aMod, exponent, p);
+        this.modPowAlgorithm = modPowAlgorithm;
 
-        if (result.equals(BigInteger.ONE)) {
-            return 1;
-        }
+        // accessOrder = true: вытесняется давно не использовавшийся модуль
+        this.contexts = new LinkedHashMap<BigInteger, MontgomeryContext>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BigInteger, MontgomeryContext> eldest) {
+                return size() > MAX_CACHED_CONTEXTS;
+            }
+        };
+    }
 
-        BigInteger minusOne = p.subtract(BigInteger.ONE);
+    public ModPowAlgorithm getModPowAlgorithm() {
+        return modPowAlgorithm;
+    }
 
-        if (result.equals(minusOne)) {
-            return -1;
+    /**
+     * Символ Лежандра для нечётного простого p; считается алгоритмом Якоби
+     * (для простого p символы совпадают), без возведения в степень.
+     */
+    @Override
+    public int legendreSymbol(BigInteger a, BigInteger p) {
+        if (p == null || a == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
         }
 
-        throw new IllegalStateException("Legendre symbol: unexpected result " + result);
+        if (!p.testBit(0)) {
+            throw new IllegalArgumentException("p must be odd");
+        }
+
+        return jacobiSymbol(a, p);
     }
 
     @Override
@@ -50,64 +77,88 @@ public class DefaultNumberTheoryService implements NumberTheoryService {
             throw new IllegalArgumentException("n must be odd");
         }
 
-        BigInteger aMod = a.mod(n);
-        int result = 1;
-
-        BigInteger zero = BigInteger.ZERO;
-        BigInteger one = BigInteger.ONE;
-        BigInteger two = BigInteger.TWO;
-        BigInteger four = BigInteger.valueOf(4);
-        BigInteger eight = BigInteger.valueOf(8);
-        BigInteger three = BigInteger.valueOf(3);
+        // Оба числа в long — сразу примитивный алгоритм
+        if (a.bitLength() < 64 && n.bitLength() < 64) {
+            return LongNumberTheory.jacobi(a.longValue(), n.longValue());
+        }
 
-        BigInteger currentA = aMod;
+        BigInteger currentA = a.mod(n);
         BigInteger currentN = n;
+        int result = 1;
 
         while (currentA.signum() != 0) {
-            // Выносим степенную двойку: A = 2^s * A'
-            while (!currentA.testBit(0)) {
-                currentA = currentA.shiftRight(1);
+            // Дальше всё помещается в long
+            if (currentN.bitLength() < 64) {
+                return result * LongNumberTheory.jacobi(currentA.longValue(), currentN.longValue());
+            }
 
-                // Закон для (2|n): (2|n) = -1, если n ≡ 3 или 5 (mod 8)
-                BigInteger nMod8 = currentN.mod(eight);
+            // Остатки по модулю 8 и 4 — младшие биты младшего слова
+            int nLow = currentN.intValue();
 
-                if (nMod8.equals(BigInteger.valueOf(3))
-                        || nMod8.equals(BigInteger.valueOf(5))) {
+            // Выносим степень двойки: A = 2^s * A'
+            int s = currentA.getLowestSetBit();
+            if (s > 0) {
+                currentA = currentA.shiftRight(s);
+
+                // (2|n) = -1, если n ≡ 3 или 5 (mod 8)
+                int nMod8 = nLow & 7;
+                if ((s & 1) == 1 && (nMod8 == 3 || nMod8 == 5)) {
                     result = -result;
                 }
             }
 
-            // Перестановка (A, N) с учётом квадратичной взаимности
-            BigInteger temp = currentA;
-            currentA = currentN;
-            currentN = temp;
-
-            // Закон квадратичной взаимности:
-            // (a|n) меняет знак, если a ≡ 3 (mod 4) и n ≡ 3 (mod 4)
-            BigInteger aMod4 = currentA.mod(four);
-            BigInteger nMod4 = currentN.mod(four);
-
-            if (aMod4.equals(three) && nMod4.equals(three)) {
+            // Квадратичная взаимность: знак меняется, если a ≡ n ≡ 3 (mod 4)
+            if ((currentA.intValue() & 3) == 3 && (nLow & 3) == 3) {
                 result = -result;
             }
 
-            currentA = currentA.mod(currentN);
+            BigInteger temp = currentA;
+            currentA = currentN.mod(currentA);
+            currentN = temp;
         }
 
-        if (currentN.equals(one)) {
+        if (currentN.equals(BigInteger.ONE)) {
             return result;
         }
 
         return 0;
     }
 
-
+    /**
+     * НОД: Лемер по старшим словам, остаток — бинарным алгоритмом.
+     */
     @Override
     public BigInteger gcd(BigInteger a, BigInteger b) {
         if (a == null || b == null) {
             throw new IllegalArgumentException("Arguments must not be null");
         }
 
+        if (a.bitLength() < 63 && b.bitLength() < 63) {
+            return BigInteger.valueOf(LongNumberTheory.gcd(a.longValue(), b.longValue()));
+        }
+
+        return GcdAlgorithms.gcd(a, b);
+    }
+
+    /**
+     * Бинарный НОД (Стейн): только сдвиги и вычитания.
+     */
+    public BigInteger binaryGcd(BigInteger a, BigInteger b) {
+        if (a == null || b == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
+        }
+
+        return GcdAlgorithms.binaryGcd(a, b);
+    }
+
+    /**
+     * Эталонный алгоритм Евклида.
+     */
+    public BigInteger euclidGcd(BigInteger a, BigInteger b) {
+        if (a == null || b == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
+        }
+
         BigInteger x = a.abs();
         BigInteger y = b.abs();
 
@@ -120,12 +171,41 @@ public class DefaultNumberTheoryService implements NumberTheoryService {
         return x;
     }
 
+    /**
+     * Расширенный алгоритм Лемера; коэффициенты те же, что у эталонного Евклида.
+     * Отрицательные аргументы обрабатываются эталонным алгоритмом.
+     */
     @Override
     public ExtendedGcdResult extendedGcd(BigInteger a, BigInteger b) {
         if (a == null || b == null) {
             throw new IllegalArgumentException("Arguments must not be null");
         }
 
+        if (a.bitLength() <= 62 && b.bitLength() <= 62) {
+            long[] r = LongNumberTheory.extendedGcd(a.longValue(), b.longValue());
+
+            return new ExtendedGcdResult(
+                    BigInteger.valueOf(r[0]),
+                    BigInteger.valueOf(r[1]),
+                    BigInteger.valueOf(r[2])
+            );
+        }
+
+        if (a.signum() < 0 || b.signum() < 0) {
+            return euclidExtendedGcd(a, b);
+        }
+
+        return GcdAlgorithms.extendedGcd(a, b);
+    }
+
+    /**
+     * Эталонный расширенный алгоритм Евклида.
+     */
+    public ExtendedGcdResult euclidExtendedGcd(BigInteger a, BigInteger b) {
+        if (a == null || b == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
+        }
+
         BigInteger oldR = a;
         BigInteger r = b;
 
@@ -169,7 +249,164 @@ public class DefaultNumberTheoryService implements NumberTheoryService {
             throw new IllegalArgumentException("Exponent must be non-negative");
         }
 
-        BigInteger result = BigInteger.ONE;
+        if (modPowAlgorithm == ModPowAlgorithm.MONTGOMERY_WINDOW && modulus.bitLength() < 63) {
+            return BigInteger.valueOf(smallModPow(base, exponent, modulus.longValue()));
+        }
+
+        // Монтгомери требует нечётного модуля, чётные считаются эталонным способом
+        if (modPowAlgorithm == ModPowAlgorithm.MONTGOMERY_WINDOW
+                && modulus.testBit(0)
+                && modulus.compareTo(BigInteger.ONE) > 0) {
+            return montgomeryContext(modulus).modPow(base, exponent);
+        }
+
+        return binaryModPow(base, exponent, modulus);
+    }
+
+    @Override
+    public BigInteger[] batchInverse(BigInteger[] values, BigInteger modulus) {
+        checkBatchInverseArguments(values, modulus);
+
+        return BatchInversion.invert(this, values, modulus);
+    }
+
+    @Override
+    public BigInteger[] batchInverse(BigInteger[] values,
+                                     BigInteger modulus,
+                                     ExecutorService executor,
+                                     int parallelism) {
+        checkBatchInverseArguments(values, modulus);
+
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be >= 1");
+        }
+
+        return BatchInversion.invertParallel(this, values, modulus, executor, parallelism);
+    }
+
+    private static void checkBatchInverseArguments(BigInteger[] values, BigInteger modulus) {
+        if (values == null || modulus == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
+        }
+
+        if (modulus.signum() <= 0) {
+            throw new IllegalArgumentException("Modulus must be positive");
+        }
+    }
+
+    @Override
+    public BigInteger multiModPow(BigInteger[] bases, BigInteger[] exponents, BigInteger modulus) {
+        if (bases == null || exponents == null || modulus == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
+        }
+
+        if (bases.length != exponents.length) {
+            throw new IllegalArgumentException("bases and exponents must have the same length");
+        }
+
+        if (modulus.signum() <= 0) {
+            throw new IllegalArgumentException("Modulus must be positive");
+        }
+
+        int i = 0;
+        while (i < bases.length) {
+            if (bases[i] == null || exponents[i] == null) {
+                throw new IllegalArgumentException("Arguments must not be null");
+            }
+
+            if (exponents[i].signum() < 0) {
+                throw new IllegalArgumentException("Exponent must be non-negative");
+            }
+
+            i = i + 1;
+        }
+
+        return MultiExponentiation.modPow(arithmetic(modulus), bases, exponents);
+    }
+
+    @Override
+    public FixedBaseModPow fixedBaseModPow(BigInteger base, BigInteger modulus, int maxExponentBits) {
+        if (base == null || modulus == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
+        }
+
+        if (modulus.signum() <= 0) {
+            throw new IllegalArgumentException("Modulus must be positive");
+        }
+
+        if (maxExponentBits <= 0) {
+            throw new IllegalArgumentException("maxExponentBits must be >= 1");
+        }
+
+        int teeth = Math.min(FixedBaseModPow.defaultTeeth(maxExponentBits), maxExponentBits);
+
+        return new FixedBaseModPow(this, arithmetic(modulus), base, maxExponentBits, teeth);
+    }
+
+    // Нечётный модуль — через кэшированный контекст Монтгомери
+    private ModularArithmetic arithmetic(BigInteger modulus) {
+        if (modulus.testBit(0) && modulus.compareTo(BigInteger.ONE) > 0) {
+            return new ModularArithmetic(modulus, montgomeryContext(modulus));
+        }
+
+        return new ModularArithmetic(modulus, null);
+    }
+
+    // Модуль меньше 2^63: возведение на long
+    static long smallModPow(BigInteger base, BigInteger exponent, long modulus) {
+        long b;
+
+        if (base.bitLength() < 64) {
+            b = base.longValue();
+        } else {
+            b = base.mod(BigInteger.valueOf(modulus)).longValue();
+        }
+
+        return LongNumberTheory.modPow(b, exponent, modulus);
+    }
+
+    /**
+     * Контекст Монтгомери для нечётного модуля; последние использованные кэшируются.
+     */
+    public MontgomeryContext montgomeryContext(BigInteger modulus) {
+        if (modulus == null) {
+            throw new IllegalArgumentException("modulus must not be null");
+        }
+
+        synchronized (contexts) {
+            MontgomeryContext context = contexts.get(modulus);
+
+            if (context == null) {
+                context = new MontgomeryContext(modulus);
+                contexts.put(modulus, context);
+            }
+
+            return context;
+        }
+    }
+
+    /**
+     * Эталонная реализация: двоичное возведение в степень.
+     */
+    public BigInteger binaryModPow(BigInteger base, BigInteger exponent, BigInteger modulus) {
+        if (base == null || exponent == null || modulus == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
+        }
+
+        if (modulus.signum() <= 0) {
+            throw new IllegalArgumentException("Modulus must be positive");
+        }
+
+        if (exponent.signum() < 0) {
+            throw new IllegalArgumentException("Exponent must be non-negative");
+        }
+
+        // По модулю 1 любой результат равен 0 (как у BigInteger.modPow и остальных путей)
+        BigInteger result = BigInteger.ONE.mod(modulus);
         BigInteger b = base.mod(modulus);
         BigInteger e = exponent;
 
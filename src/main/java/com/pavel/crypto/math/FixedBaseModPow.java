@@ -0,0 +1,164 @@
+package com.pavel.crypto.math;
+
+import java.math.BigInteger;
+
+/**
+ * Возведение одного и того же основания g в разные степени по модулю n
+ * (гребёнка Лим–Ли).
+ *
+ * Показатель длины до L бит делится на h «зубьев» по d = ceil(L / h) бит.
+ * Таблица table[b] = произведение g^(2^(j * d)) по единичным битам j числа b
+ * строится один раз; затем каждое возведение стоит d квадратов и не больше
+ * d умножений вместо L квадратов и L / (w + 1) умножений скользящего окна.
+ *
+ * Контекст неизменяем и может использоваться из нескольких потоков.
+ */
+public final class FixedBaseModPow {
+
+    private final NumberTheoryService numberTheory;
+    private final ModularArithmetic arithmetic;
+    private final BigInteger base;
+    private final int maxExponentBits;
+    private final int teeth;
+    private final int spacing;
+    private final BigInteger[] table;
+
+    FixedBaseModPow(NumberTheoryService numberTheory,
+                    ModularArithmetic arithmetic,
+                    BigInteger base,
+                    int maxExponentBits,
+                    int teeth) {
+        this.numberTheory = numberTheory;
+        this.arithmetic = arithmetic;
+        this.base = base;
+        this.maxExponentBits = maxExponentBits;
+        this.teeth = teeth;
+        this.spacing = (maxExponentBits + teeth - 1) / teeth;
+        this.table = buildTable();
+    }
+
+    /**
+     * Число зубьев по умолчанию: таблица из 2^h элементов окупается при длинных показателях.
+     */
+    static int defaultTeeth(int maxExponentBits) {
+        if (maxExponentBits <= 32) {
+            return 2;
+        }
+
+        if (maxExponentBits <= 128) {
+            return 4;
+        }
+
+        if (maxExponentBits <= 512) {
+            return 6;
+        }
+
+        return 8;
+    }
+
+    public BigInteger getBase() {
+        return base;
+    }
+
+    public BigInteger getModulus() {
+        return arithmetic.getModulus();
+    }
+
+    public int getMaxExponentBits() {
+        return maxExponentBits;
+    }
+
+    /**
+     * base^exponent mod n; показатели длиннее maxExponentBits считаются обычным modPow.
+     */
+    public BigInteger modPow(BigInteger exponent) {
+        if (exponent == null) {
+            throw new IllegalArgumentException("exponent must not be null");
+        }
+
+        if (exponent.signum() < 0) {
+            throw new IllegalArgumentException("Exponent must be non-negative");
+        }
+
+        if (exponent.bitLength() > maxExponentBits) {
+            return numberTheory.modPow(base, exponent, arithmetic.getModulus());
+        }
+
+        if (exponent.signum() == 0) {
+            return BigInteger.ONE.mod(arithmetic.getModulus());
+        }
+
+        BigInteger acc = null;
+
+        int i = spacing - 1;
+        while (i >= 0) {
+            if (acc != null) {
+                acc = arithmetic.square(acc);
+            }
+
+            // j-й бит индекса — бит j * d + i показателя
+            int index = 0;
+            int j = teeth - 1;
+            while (j >= 0) {
+                index = index << 1;
+
+                if (exponent.testBit(j * spacing + i)) {
+                    index = index | 1;
+                }
+
+                j = j - 1;
+            }
+
+            if (index != 0) {
+                if (acc == null) {
+                    acc = table[index];
+                } else {
+                    acc = arithmetic.multiply(acc, table[index]);
+                }
+            }
+
+            i = i - 1;
+        }
+
+        return arithmetic.leave(acc);
+    }
+
+    private BigInteger[] buildTable() {
+        BigInteger[] result = new BigInteger[1 << teeth];
+
+        // powers[j] = g^(2^(j * d))
+        BigInteger[] powers = new BigInteger[teeth];
+        powers[0] = arithmetic.enter(base);
+
+        int j = 1;
+        while (j < teeth) {
+            BigInteger p = powers[j - 1];
+
+            int s = 0;
+            while (s < spacing) {
+                p = arithmetic.square(p);
+                s = s + 1;
+            }
+
+            powers[j] = p;
+            j = j + 1;
+        }
+
+        // table[b] = table[b без старшего бита] * powers[старший бит]
+        int b = 1;
+        while (b < result.length) {
+            int high = 31 - Integer.numberOfLeadingZeros(b);
+            int rest = b ^ (1 << high);
+
+            if (rest == 0) {
+                result[b] = powers[high];
+            } else {
+                result[b] = arithmetic.multiply(result[rest], powers[high]);
+            }
+
+            b = b + 1;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,268 @@
+package com.pavel.crypto.math;
+
+import java.math.BigInteger;
+
+/**
+ * НОД без деления BigInteger на каждом шаге.
+ *
+ * Лемер: частные алгоритма Евклида угадываются по старшим 62 битам в long,
+ * пока угадывание гарантированно совпадает с точным (условие Кнута, алгоритм L),
+ * а полные числа обновляются матрицей 2x2 раз в несколько десятков шагов.
+ * Последовательность частных та же, что у Евклида, поэтому и коэффициенты
+ * Безу совпадают с эталонным extendedGcd.
+ *
+ * Числа, поместившиеся в long, досчитываются бинарным алгоритмом (Стейн).
+ */
+final class GcdAlgorithms {
+
+    // Сколько старших бит берётся для угадывания частных (запас на знак и переносы)
+    private static final int LEADING_BITS = 62;
+
+    private GcdAlgorithms() {
+    }
+
+    /**
+     * НОД(|a|, |b|): сокращение Лемером до размера long, затем Стейн.
+     */
+    static BigInteger gcd(BigInteger a, BigInteger b) {
+        BigInteger x = a.abs();
+        BigInteger y = b.abs();
+
+        if (x.compareTo(y) < 0) {
+            BigInteger tmp = x;
+            x = y;
+            y = tmp;
+        }
+
+        while (y.signum() != 0 && x.bitLength() > LEADING_BITS) {
+            long[] m = lehmerMatrix(x, y);
+
+            if (m == null) {
+                // Частное не угадывается — один точный шаг
+                BigInteger r = x.mod(y);
+                x = y;
+                y = r;
+                continue;
+            }
+
+            BigInteger newX = combine(m[0], x, m[1], y);
+            BigInteger newY = combine(m[2], x, m[3], y);
+
+            x = newX;
+            y = newY;
+        }
+
+        if (y.signum() == 0) {
+            return x;
+        }
+
+        return BigInteger.valueOf(binaryGcd(x.longValue(), y.longValue()));
+    }
+
+    /**
+     * Бинарный алгоритм Стейна над BigInteger: только сдвиги и вычитания.
+     */
+    static BigInteger binaryGcd(BigInteger a, BigInteger b) {
+        BigInteger x = a.abs();
+        BigInteger y = b.abs();
+
+        if (x.signum() == 0) {
+            return y;
+        }
+
+        if (y.signum() == 0) {
+            return x;
+        }
+
+        // Общая степень двойки
+        int shift = Math.min(x.getLowestSetBit(), y.getLowestSetBit());
+
+        x = x.shiftRight(x.getLowestSetBit());
+
+        while (y.signum() != 0) {
+            if (x.bitLength() < 63 && y.bitLength() < 63) {
+                long g = binaryGcd(x.longValue(), y.longValue());
+                return BigInteger.valueOf(g).shiftLeft(shift);
+            }
+
+            y = y.shiftRight(y.getLowestSetBit());
+
+            // Оба нечётные: из большего вычитаем меньшее
+            if (x.compareTo(y) > 0) {
+                BigInteger tmp = x;
+                x = y;
+                y = tmp;
+            }
+
+            y = y.subtract(x);
+        }
+
+        return x.shiftLeft(shift);
+    }
+
+    /**
+     * Стейн для неотрицательных long.
+     */
+    static long binaryGcd(long a, long b) {
+        if (a == 0) {
+            return b;
+        }
+
+        if (b == 0) {
+            return a;
+        }
+
+        int shift = Long.numberOfTrailingZeros(a | b);
+
+        a = a >>> Long.numberOfTrailingZeros(a);
+
+        while (b != 0) {
+            b = b >>> Long.numberOfTrailingZeros(b);
+
+            if (a > b) {
+                long tmp = a;
+                a = b;
+                b = tmp;
+            }
+
+            b = b - a;
+        }
+
+        return a << shift;
+    }
+
+    /**
+     * Расширенный алгоритм Лемера для a, b >= 0; результат совпадает
+     * с эталонным алгоритмом Евклида (те же частные).
+     */
+    static ExtendedGcdResult extendedGcd(BigInteger a, BigInteger b) {
+        BigInteger oldR = a;
+        BigInteger r = b;
+
+        BigInteger oldS = BigInteger.ONE;
+        BigInteger s = BigInteger.ZERO;
+
+        BigInteger oldT = BigInteger.ZERO;
+        BigInteger t = BigInteger.ONE;
+
+        while (r.signum() != 0) {
+            long[] m;
+
+            if (oldR.bitLength() <= LEADING_BITS && r.bitLength() <= LEADING_BITS) {
+                // Остатки уже в long: точный Евклид до конца одной матрицей
+                m = exactMatrix(oldR.longValue(), r.longValue());
+            } else {
+                m = lehmerMatrix(oldR, r);
+            }
+
+            if (m == null) {
+                BigInteger[] div = oldR.divideAndRemainder(r);
+                BigInteger q = div[0];
+
+                oldR = r;
+                r = div[1];
+
+                BigInteger tempS = s;
+                s = oldS.subtract(q.multiply(s));
+                oldS = tempS;
+
+                BigInteger tempT = t;
+                t = oldT.subtract(q.multiply(t));
+                oldT = tempT;
+                continue;
+            }
+
+            BigInteger newOldR = combine(m[0], oldR, m[1], r);
+            BigInteger newR = combine(m[2], oldR, m[3], r);
+            oldR = newOldR;
+            r = newR;
+
+            BigInteger newOldS = combine(m[0], oldS, m[1], s);
+            BigInteger newS = combine(m[2], oldS, m[3], s);
+            oldS = newOldS;
+            s = newS;
+
+            BigInteger newOldT = combine(m[0], oldT, m[1], t);
+            BigInteger newT = combine(m[2], oldT, m[3], t);
+            oldT = newOldT;
+            t = newT;
+        }
+
+        return new ExtendedGcdResult(oldR, oldS, oldT);
+    }
+
+    /**
+     * Матрица {A, B, C, D} из шагов Евклида, угаданных по старшим битам x >= 0, y > 0;
+     * null, если не удалось угадать ни одного шага.
+     */
+    private static long[] lehmerMatrix(BigInteger x, BigInteger y) {
+        int shift = Math.max(x.bitLength(), y.bitLength()) - LEADING_BITS;
+
+        long u = x.shiftRight(shift).longValue();
+        long v = y.shiftRight(shift).longValue();
+
+        long a = 1;
+        long b = 0;
+        long c = 0;
+        long d = 1;
+
+        while (v + c != 0 && v + d != 0) {
+            long q = (u + a) / (v + c);
+
+            if (q != (u + b) / (v + d)) {
+                break;
+            }
+
+            long tmp = a - q * c;
+            a = c;
+            c = tmp;
+
+            tmp = b - q * d;
+            b = d;
+            d = tmp;
+
+            tmp = u - q * v;
+            u = v;
+            v = tmp;
+        }
+
+        if (b == 0) {
+            return null;
+        }
+
+        return new long[]{a, b, c, d};
+    }
+
+    /**
+     * Полный алгоритм Евклида для x, y >= 0 в long; матрица переводит (x, y) в (НОД, 0).
+     */
+    private static long[] exactMatrix(long x, long y) {
+        long a = 1;
+        long b = 0;
+        long c = 0;
+        long d = 1;
+
+        while (y != 0) {
+            long q = x / y;
+
+            long tmp = a - q * c;
+            a = c;
+            c = tmp;
+
+            tmp = b - q * d;
+            b = d;
+            d = tmp;
+
+            tmp = x - q * y;
+            x = y;
+            y = tmp;
+        }
+
+        return new long[]{a, b, c, d};
+    }
+
+    // p * x + q * y
+    private static BigInteger combine(long p, BigInteger x, long q, BigInteger y) {
+        return x.multiply(BigInteger.valueOf(p)).add(y.multiply(BigInteger.valueOf(q)));
+    }
+}
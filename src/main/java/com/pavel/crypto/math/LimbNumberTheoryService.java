@@ -0,0 +1,75 @@
+package com.pavel.crypto.math;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Вариант DefaultNumberTheoryService, в котором modPow по нечётному модулю
+ * считается на MontgomeryKernel (изменяемые массивы слов вместо BigInteger).
+ *
+ * Ядра не потокобезопасны, поэтому у каждого потока свой небольшой кэш ядер
+ * по модулю: повторные операции под одним ключом (RSA, КТО по p и q) не создают
+ * промежуточных объектов. Остальные операции и чётные модули — как в базовом классе.
+ */
+public class LimbNumberTheoryService extends DefaultNumberTheoryService {
+
+    private static final int MAX_KERNELS_PER_THREAD = 4;
+
+    private final ThreadLocal<Map<BigInteger, MontgomeryKernel>> kernels =
+            new ThreadLocal<Map<BigInteger, MontgomeryKernel>>() {
+                @Override
+                protected Map<BigInteger, MontgomeryKernel> initialValue() {
+                    return new LinkedHashMap<BigInteger, MontgomeryKernel>(8, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<BigInteger, MontgomeryKernel> eldest) {
+                            return size() > MAX_KERNELS_PER_THREAD;
+                        }
+                    };
+                }
+            };
+
+    @Override
+    public BigInteger modPow(BigInteger base, BigInteger exponent, BigInteger modulus) {
+        if (base == null || exponent == null || modulus == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
+        }
+
+        if (modulus.signum() <= 0) {
+            throw new IllegalArgumentException("Modulus must be positive");
+        }
+
+        if (exponent.signum() < 0) {
+            throw new IllegalArgumentException("Exponent must be non-negative");
+        }
+
+        if (modulus.bitLength() < 63) {
+            return BigInteger.valueOf(smallModPow(base, exponent, modulus.longValue()));
+        }
+
+        if (!modulus.testBit(0)) {
+            return binaryModPow(base, exponent, modulus);
+        }
+
+        return kernel(modulus).modPow(base, exponent);
+    }
+
+    /**
+     * Ядро текущего потока для нечётного модуля.
+     */
+    public MontgomeryKernel kernel(BigInteger modulus) {
+        if (modulus == null) {
+            throw new IllegalArgumentException("modulus must not be null");
+        }
+
+        Map<BigInteger, MontgomeryKernel> cache = kernels.get();
+        MontgomeryKernel kernel = cache.get(modulus);
+
+        if (kernel == null) {
+            kernel = new MontgomeryKernel(modulus);
+            cache.put(modulus, kernel);
+        }
+
+        return kernel;
+    }
+}
@@ -0,0 +1,402 @@
+package com.pavel.crypto.math;
+
+import java.math.BigInteger;
+
+/**
+ * Теоретико-числовые операции на long для чисел меньше 2^63 — без BigInteger
+ * и выделения памяти.
+ *
+ * Умножение по нечётному модулю — Монтгомери с R = 2^64: 128-битное произведение
+ * собирается из a * b и Math.multiplyHigh. DefaultNumberTheoryService и тесты
+ * простоты переходят сюда сами, когда аргументы помещаются в long.
+ */
+public final class LongNumberTheory {
+
+    // Основания Синклера: детерминированный Миллер–Рабин для всех n < 2^64
+    private static final long[] DETERMINISTIC_BASES = {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+
+    private static final long[] SMALL_PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37};
+
+    private LongNumberTheory() {
+    }
+
+    /**
+     * НОД(|a|, |b|), бинарный алгоритм; |a|, |b| < 2^63.
+     */
+    public static long gcd(long a, long b) {
+        return GcdAlgorithms.binaryGcd(Math.abs(a), Math.abs(b));
+    }
+
+    /**
+     * {НОД, x, y} с a * x + b * y = НОД — тот же расширенный алгоритм Евклида,
+     * что и для BigInteger (деление с отбрасыванием дробной части), поэтому и
+     * коэффициенты те же. |a|, |b| < 2^62.
+     */
+    public static long[] extendedGcd(long a, long b) {
+        long oldR = a;
+        long r = b;
+
+        long oldS = 1;
+        long s = 0;
+
+        long oldT = 0;
+        long t = 1;
+
+        while (r != 0) {
+            long q = oldR / r;
+
+            long tmp = r;
+            r = oldR - q * r;
+            oldR = tmp;
+
+            tmp = s;
+            s = oldS - q * s;
+            oldS = tmp;
+
+            tmp = t;
+            t = oldT - q * t;
+            oldT = tmp;
+        }
+
+        return new long[]{oldR, oldS, oldT};
+    }
+
+    /**
+     * Символ Якоби (a|n) для нечётного 0 < n < 2^63.
+     */
+    public static int jacobi(long a, long n) {
+        if (n <= 0 || (n & 1) == 0) {
+            throw new IllegalArgumentException("n must be positive and odd");
+        }
+
+        a = Math.floorMod(a, n);
+        int result = 1;
+
+        while (a != 0) {
+            int s = Long.numberOfTrailingZeros(a);
+            a = a >>> s;
+
+            // (2|n) = -1, если n ≡ 3 или 5 (mod 8)
+            int nMod8 = (int) (n & 7);
+            if ((s & 1) == 1 && (nMod8 == 3 || nMod8 == 5)) {
+                result = -result;
+            }
+
+            // Квадратичная взаимность
+            if ((a & 3) == 3 && (n & 3) == 3) {
+                result = -result;
+            }
+
+            long temp = a;
+            a = n % a;
+            n = temp;
+        }
+
+        if (n == 1) {
+            return result;
+        }
+
+        return 0;
+    }
+
+    /**
+     * a * b mod n для 0 <= a, b < n < 2^63.
+     */
+    public static long mulMod(long a, long b, long n) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+
+        if (high == 0) {
+            return Long.remainderUnsigned(low, n);
+        }
+
+        // (high * 2^64 + low) mod n: старшая часть, затем 64 удвоения с добавлением бит low
+        long r = high % n;
+
+        int bit = 63;
+        while (bit >= 0) {
+            r = doubleMod(r, n);
+
+            if (((low >>> bit) & 1) != 0) {
+                r = r + 1;
+
+                if (r >= n) {
+                    r = r - n;
+                }
+            }
+
+            bit = bit - 1;
+        }
+
+        return r;
+    }
+
+    /**
+     * base^exponent mod n для 0 < n < 2^63 с показателем в long — без BigInteger.
+     */
+    public static long modPow(long base, long exponent, long n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Modulus must be positive");
+        }
+
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Exponent must be non-negative");
+        }
+
+        if (n == 1) {
+            return 0;
+        }
+
+        long b = Math.floorMod(base, n);
+
+        // Для exponent = 0 цикл не выполняется
+        int top = 63 - Long.numberOfLeadingZeros(exponent);
+
+        if ((n & 1) == 0) {
+            long acc = 1;
+
+            int bit = top;
+            while (bit >= 0) {
+                acc = mulMod(acc, acc, n);
+
+                if (((exponent >>> bit) & 1) != 0) {
+                    acc = mulMod(acc, b, n);
+                }
+
+                bit = bit - 1;
+            }
+
+            return acc;
+        }
+
+        long nInv = inverse(n);
+        long rModN = Long.remainderUnsigned(-n, n);
+
+        long x = montMul(b, rSquared(rModN, n), n, nInv);
+        long acc = rModN;
+
+        int bit = top;
+        while (bit >= 0) {
+            acc = montMul(acc, acc, n, nInv);
+
+            if (((exponent >>> bit) & 1) != 0) {
+                acc = montMul(acc, x, n, nInv);
+            }
+
+            bit = bit - 1;
+        }
+
+        return montMul(acc, 1, n, nInv);
+    }
+
+    /**
+     * base^exponent mod n для 0 < n < 2^63; base может быть любым long.
+     */
+    public static long modPow(long base, BigInteger exponent, long n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Modulus must be positive");
+        }
+
+        if (exponent.signum() < 0) {
+            throw new IllegalArgumentException("Exponent must be non-negative");
+        }
+
+        if (n == 1) {
+            return 0;
+        }
+
+        long b = Math.floorMod(base, n);
+
+        if ((n & 1) == 0) {
+            return plainModPow(b, exponent, n);
+        }
+
+        long nInv = inverse(n);
+        long rModN = Long.remainderUnsigned(-n, n);
+
+        long x = montMul(b, rSquared(rModN, n), n, nInv);
+        long acc = rModN;
+
+        int bit = exponent.bitLength() - 1;
+        while (bit >= 0) {
+            acc = montMul(acc, acc, n, nInv);
+
+            if (exponent.testBit(bit)) {
+                acc = montMul(acc, x, n, nInv);
+            }
+
+            bit = bit - 1;
+        }
+
+        return montMul(acc, 1, n, nInv);
+    }
+
+    /**
+     * Точная проверка простоты для 0 <= n < 2^63.
+     */
+    public static boolean isPrime(long n) {
+        if (n < 2) {
+            return false;
+        }
+
+        for (long p : SMALL_PRIMES) {
+            if (n == p) {
+                return true;
+            }
+
+            if (n % p == 0) {
+                return false;
+            }
+        }
+
+        long nInv = inverse(n);
+        long rModN = Long.remainderUnsigned(-n, n);
+        long r2 = rSquared(rModN, n);
+
+        for (long base : DETERMINISTIC_BASES) {
+            long a = base % n;
+
+            if (a == 0) {
+                continue;
+            }
+
+            if (!strongProbablePrime(n, a, nInv, rModN, r2)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Сильная проверка Миллера–Рабина по основанию a для нечётного n > 3, 1 < a < n - 1.
+     */
+    public static boolean isStrongProbablePrime(long n, long a) {
+        long nInv = inverse(n);
+        long rModN = Long.remainderUnsigned(-n, n);
+
+        return strongProbablePrime(n, a, nInv, rModN, rSquared(rModN, n));
+    }
+
+    private static boolean strongProbablePrime(long n, long a, long nInv, long rModN, long r2) {
+        long d = n - 1;
+        int s = Long.numberOfTrailingZeros(d);
+        d = d >>> s;
+
+        // В форме Монтгомери: единица — R mod n, минус единица — n - R mod n
+        long one = rModN;
+        long minusOne = n - rModN;
+
+        long x = montMul(a, r2, n, nInv);
+        long acc = one;
+
+        int bit = 63 - Long.numberOfLeadingZeros(d);
+        while (bit >= 0) {
+            acc = montMul(acc, acc, n, nInv);
+
+            if (((d >>> bit) & 1) != 0) {
+                acc = montMul(acc, x, n, nInv);
+            }
+
+            bit = bit - 1;
+        }
+
+        if (acc == one || acc == minusOne) {
+            return true;
+        }
+
+        int r = 1;
+        while (r < s) {
+            acc = montMul(acc, acc, n, nInv);
+
+            if (acc == minusOne) {
+                return true;
+            }
+
+            if (acc == one) {
+                return false;
+            }
+
+            r = r + 1;
+        }
+
+        return false;
+    }
+
+    /**
+     * a * b * 2^(-64) mod n для 0 <= a, b < n, n нечётно.
+     * m = T * n^(-1) mod 2^64 обнуляет младшее слово T - m * n, поэтому результат —
+     * разность старших слов.
+     */
+    private static long montMul(long a, long b, long n, long nInv) {
+        long low = a * b;
+        long high = Math.multiplyHigh(a, b);
+
+        long m = low * nInv;
+
+        // Беззнаковая старшая половина m * n (m может быть «отрицательным»)
+        long mnHigh = Math.multiplyHigh(m, n) + ((m >> 63) & n);
+
+        long t = high - mnHigh;
+
+        if (t < 0) {
+            t = t + n;
+        }
+
+        return t;
+    }
+
+    // n^(-1) mod 2^64 для нечётного n (Ньютон: число верных бит удваивается)
+    private static long inverse(long n) {
+        long x = n;
+
+        int i = 0;
+        while (i < 5) {
+            x = x * (2 - n * x);
+            i = i + 1;
+        }
+
+        return x;
+    }
+
+    // R^2 mod n из R mod n: ещё 64 удвоения
+    private static long rSquared(long rModN, long n) {
+        long x = rModN;
+
+        int i = 0;
+        while (i < 64) {
+            x = doubleMod(x, n);
+            i = i + 1;
+        }
+
+        return x;
+    }
+
+    // 2x mod n для 0 <= x < n < 2^63 (2x помещается в беззнаковый long)
+    private static long doubleMod(long x, long n) {
+        long y = x << 1;
+
+        if (Long.compareUnsigned(y, n) >= 0) {
+            y = y - n;
+        }
+
+        return y;
+    }
+
+    private static long plainModPow(long b, BigInteger exponent, long n) {
+        long acc = 1;
+
+        int bit = exponent.bitLength() - 1;
+        while (bit >= 0) {
+            acc = mulMod(acc, acc, n);
+
+            if (exponent.testBit(bit)) {
+                acc = mulMod(acc, b, n);
+            }
+
+            bit = bit - 1;
+        }
+
+        return acc;
+    }
+}
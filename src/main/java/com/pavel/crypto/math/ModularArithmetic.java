@@ -0,0 +1,51 @@
+package com.pavel.crypto.math;
+
+import java.math.BigInteger;
+
+/**
+ * Умножение по модулю для алгоритмов возведения в степень: для нечётного модуля —
+ * в форме Монтгомери, для чётного — обычное умножение с делением.
+ * Значения между enter и leave хранятся во внутреннем представлении.
+ */
+final class ModularArithmetic {
+
+    private final BigInteger modulus;
+    private final MontgomeryContext montgomery;
+
+    ModularArithmetic(BigInteger modulus, MontgomeryContext montgomery) {
+        this.modulus = modulus;
+        this.montgomery = montgomery;
+    }
+
+    BigInteger getModulus() {
+        return modulus;
+    }
+
+    BigInteger enter(BigInteger x) {
+        if (montgomery != null) {
+            return montgomery.toMontgomery(x);
+        }
+
+        return x.mod(modulus);
+    }
+
+    BigInteger leave(BigInteger x) {
+        if (montgomery != null) {
+            return montgomery.fromMontgomery(x);
+        }
+
+        return x;
+    }
+
+    BigInteger multiply(BigInteger a, BigInteger b) {
+        if (montgomery != null) {
+            return montgomery.multiply(a, b);
+        }
+
+        return a.multiply(b).mod(modulus);
+    }
+
+    BigInteger square(BigInteger a) {
+        return multiply(a, a);
+    }
+}
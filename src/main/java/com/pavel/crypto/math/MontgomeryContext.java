@@ -0,0 +1,200 @@
+package com.pavel.crypto.math;
+
+import java.math.BigInteger;
+
+/**
+ * Предвычисления для арифметики Монтгомери по нечётному модулю n.
+ *
+ * R = 2^k, k — длина n в битах. Число x хранится как x * R mod n; произведение
+ * таких чисел приводится редукцией REDC (маска, умножение и сдвиг вместо деления).
+ * Возведение в степень — скользящее окно по битам показателя.
+ *
+ * Контекст неизменяем и может использоваться из нескольких потоков для всех
+ * операций по одному модулю (например, по p и q закрытого ключа RSA).
+ */
+public final class MontgomeryContext {
+
+    private final BigInteger modulus;
+    private final int shift;
+    private final BigInteger mask;
+
+    // -n^(-1) mod R
+    private final BigInteger nPrime;
+
+    // R^2 mod n: для перевода в форму Монтгомери
+    private final BigInteger rSquared;
+
+    // R mod n: единица в форме Монтгомери
+    private final BigInteger one;
+
+    public MontgomeryContext(BigInteger modulus) {
+        if (modulus == null) {
+            throw new IllegalArgumentException("modulus must not be null");
+        }
+
+        if (modulus.compareTo(BigInteger.ONE) <= 0 || !modulus.testBit(0)) {
+            throw new IllegalArgumentException("Montgomery modulus must be odd and > 1");
+        }
+
+        this.modulus = modulus;
+        this.shift = modulus.bitLength();
+
+        BigInteger r = BigInteger.ONE.shiftLeft(shift);
+
+        this.mask = r.subtract(BigInteger.ONE);
+        this.nPrime = r.subtract(modulus.modInverse(r));
+        this.rSquared = r.multiply(r).mod(modulus);
+        this.one = r.mod(modulus);
+    }
+
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+    /**
+     * x -> x * R mod n.
+     */
+    public BigInteger toMontgomery(BigInteger x) {
+        return multiply(x.mod(modulus), rSquared);
+    }
+
+    /**
+     * x * R mod n -> x.
+     */
+    public BigInteger fromMontgomery(BigInteger x) {
+        return reduce(x);
+    }
+
+    /**
+     * Произведение двух чисел в форме Монтгомери.
+     */
+    public BigInteger multiply(BigInteger a, BigInteger b) {
+        return reduce(a.multiply(b));
+    }
+
+    public BigInteger square(BigInteger a) {
+        return reduce(a.multiply(a));
+    }
+
+    /**
+     * base^exponent mod n, обычные (не Монтгомери) вход и выход.
+     */
+    public BigInteger modPow(BigInteger base, BigInteger exponent) {
+        if (base == null || exponent == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
+        }
+
+        if (exponent.signum() < 0) {
+            throw new IllegalArgumentException("Exponent must be non-negative");
+        }
+
+        if (exponent.signum() == 0) {
+            return BigInteger.ONE;
+        }
+
+        int window = windowSize(exponent.bitLength());
+
+        // table[i] = base^(2i + 1) в форме Монтгомери
+        BigInteger[] table = new BigInteger[1 << (window - 1)];
+        table[0] = toMontgomery(base);
+
+        if (table.length > 1) {
+            BigInteger baseSquared = square(table[0]);
+
+            int i = 1;
+            while (i < table.length) {
+                table[i] = multiply(table[i - 1], baseSquared);
+                i = i + 1;
+            }
+        }
+
+        BigInteger acc = one;
+        boolean started = false;
+
+        int bit = exponent.bitLength() - 1;
+        while (bit >= 0) {
+            if (!exponent.testBit(bit)) {
+                if (started) {
+                    acc = square(acc);
+                }
+
+                bit = bit - 1;
+                continue;
+            }
+
+            // Окно [bit, low]: не длиннее window бит и заканчивается единицей
+            int low = Math.max(bit - window + 1, 0);
+            while (!exponent.testBit(low)) {
+                low = low + 1;
+            }
+
+            int value = 0;
+            int j = bit;
+            while (j >= low) {
+                value = (value << 1) | (exponent.testBit(j) ? 1 : 0);
+
+                if (started) {
+                    acc = square(acc);
+                }
+
+                j = j - 1;
+            }
+
+            if (started) {
+                acc = multiply(acc, table[value >>> 1]);
+            } else {
+                acc = table[value >>> 1];
+                started = true;
+            }
+
+            bit = low - 1;
+        }
+
+        return fromMontgomery(acc);
+    }
+
+    /**
+     * REDC: T * R^(-1) mod n для 0 <= T < n * R.
+     */
+    private BigInteger reduce(BigInteger t) {
+        BigInteger m = t.and(mask).multiply(nPrime).and(mask);
+        BigInteger u = t.add(m.multiply(modulus)).shiftRight(shift);
+
+        if (u.compareTo(modulus) >= 0) {
+            u = u.subtract(modulus);
+        }
+
+        return u;
+    }
+
+    /**
+     * Ширина окна по длине показателя (как в BigInteger.oddModPow).
+     */
+    static int windowSize(int exponentBits) {
+        if (exponentBits <= 7) {
+            return 1;
+        }
+
+        if (exponentBits <= 25) {
+            return 2;
+        }
+
+        if (exponentBits <= 81) {
+            return 3;
+        }
+
+        if (exponentBits <= 241) {
+            return 4;
+        }
+
+        if (exponentBits <= 673) {
+            return 5;
+        }
+
+        if (exponentBits <= 1793) {
+            return 6;
+        }
+
+        return 7;
+    }
+}
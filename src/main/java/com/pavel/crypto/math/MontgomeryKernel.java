@@ -0,0 +1,469 @@
+package com.pavel.crypto.math;
+
+import java.math.BigInteger;
+
+/**
+ * Изменяемое ядро арифметики Монтгомери над 32-битными словами (младшее слово первое).
+ *
+ * Все массивы имеют длину getSize() — число слов модуля. Умножение — CIOS
+ * (умножение и редукция в одном проходе); промежуточные значения живут в буферах
+ * ядра, поэтому modPow, multiply, add и subtract над массивами не создают объектов.
+ * Выделяется память только на границе с BigInteger (load/toBigInteger).
+ *
+ * Ядро не потокобезопасно: у каждого потока должен быть свой экземпляр.
+ */
+public final class MontgomeryKernel {
+
+    private static final long MASK = 0xFFFFFFFFL;
+
+    private final BigInteger modulus;
+    private final int size;
+    private final int[] n;
+
+    // -n^(-1) mod 2^32
+    private final int n0inv;
+
+    // R^2 mod n и обычная единица — для перевода в форму Монтгомери и обратно
+    private final int[] rSquared;
+    private final int[] unit;
+
+    // Рабочие буферы
+    private final int[] t;
+    private final int[] wide;
+    private final int[][] table;
+    private final int[] acc;
+    private final int[] square;
+    private final int[] input;
+    private final int[] output;
+
+    private final int maxWindow;
+
+    public MontgomeryKernel(BigInteger modulus) {
+        if (modulus == null) {
+            throw new IllegalArgumentException("modulus must not be null");
+        }
+
+        if (modulus.compareTo(BigInteger.ONE) <= 0 || !modulus.testBit(0)) {
+            throw new IllegalArgumentException("Montgomery modulus must be odd and > 1");
+        }
+
+        this.modulus = modulus;
+        this.size = (modulus.bitLength() + 31) >>> 5;
+        this.n = new int[size];
+        load(modulus, n);
+
+        // Обратный к n[0] по модулю 2^32 методом Ньютона: каждый шаг удваивает число верных бит
+        int x = n[0];
+        int i = 0;
+        while (i < 5) {
+            x = x * (2 - n[0] * x);
+            i = i + 1;
+        }
+        this.n0inv = -x;
+
+        BigInteger r = BigInteger.ONE.shiftLeft(size * 32);
+
+        this.rSquared = new int[size];
+        load(r.multiply(r).mod(modulus), rSquared);
+
+        this.unit = new int[size];
+        unit[0] = 1;
+
+        this.maxWindow = MontgomeryContext.windowSize(size * 32);
+
+        this.t = new int[size + 2];
+        this.wide = new int[2 * size + 1];
+        this.table = new int[1 << (maxWindow - 1)][size];
+        this.acc = new int[size];
+        this.square = new int[size];
+        this.input = new int[size];
+        this.output = new int[size];
+    }
+
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+    // Число 32-битных слов модуля
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * out = a * b * R^(-1) mod n; out может совпадать с a или b.
+     */
+    public void multiply(int[] a, int[] b, int[] out) {
+        // Поля в локальные переменные: JIT лучше убирает проверки границ во внутренних циклах
+        int s = size;
+        int[] t = this.t;
+        int[] n = this.n;
+        int n0inv = this.n0inv;
+
+        int j = 0;
+        while (j < s + 2) {
+            t[j] = 0;
+            j = j + 1;
+        }
+
+        int i = 0;
+        while (i < s) {
+            long bi = b[i] & MASK;
+            long carry = 0;
+
+            // t += a * b[i]
+            j = 0;
+            while (j < s) {
+                long x = (t[j] & MASK) + (a[j] & MASK) * bi + carry;
+                t[j] = (int) x;
+                carry = x >>> 32;
+                j = j + 1;
+            }
+
+            long top = (t[s] & MASK) + carry;
+            t[s] = (int) top;
+            t[s + 1] = (int) (top >>> 32);
+
+            // t = (t + m * n) / 2^32, m подобрано так, чтобы младшее слово обнулилось
+            long m = (t[0] * n0inv) & MASK;
+
+            long x = (t[0] & MASK) + m * (n[0] & MASK);
+            carry = x >>> 32;
+
+            j = 1;
+            while (j < s) {
+                x = (t[j] & MASK) + m * (n[j] & MASK) + carry;
+                t[j - 1] = (int) x;
+                carry = x >>> 32;
+                j = j + 1;
+            }
+
+            x = (t[s] & MASK) + carry;
+            t[s - 1] = (int) x;
+            t[s] = t[s + 1] + (int) (x >>> 32);
+
+            i = i + 1;
+        }
+
+        // Результат < 2n: одно условное вычитание
+        if (t[s] != 0 || compare(t, n) >= 0) {
+            subtractInPlace(t, n);
+        }
+
+        System.arraycopy(t, 0, out, 0, s);
+    }
+
+    /**
+     * out = a^2 * R^(-1) mod n. Полный квадрат с удвоением попарных произведений
+     * (вдвое меньше умножений слов), затем отдельная редукция по словам.
+     */
+    public void square(int[] a, int[] out) {
+        int s = size;
+        int[] w = this.wide;
+        int[] n = this.n;
+        int n0inv = this.n0inv;
+
+        int j = 0;
+        while (j < w.length) {
+            w[j] = 0;
+            j = j + 1;
+        }
+
+        // Попарные произведения a[i] * a[j], i < j
+        int i = 0;
+        while (i < s) {
+            long ai = a[i] & MASK;
+            long carry = 0;
+
+            j = i + 1;
+            while (j < s) {
+                long x = (w[i + j] & MASK) + ai * (a[j] & MASK) + carry;
+                w[i + j] = (int) x;
+                carry = x >>> 32;
+                j = j + 1;
+            }
+
+            w[i + s] = (int) carry;
+            i = i + 1;
+        }
+
+        // Удвоение сдвигом на бит
+        int high = 0;
+        j = 0;
+        while (j < 2 * s) {
+            int v = w[j];
+            w[j] = (v << 1) | high;
+            high = v >>> 31;
+            j = j + 1;
+        }
+
+        // Квадраты a[i]^2 на диагонали
+        long carry = 0;
+        i = 0;
+        while (i < s) {
+            long ai = a[i] & MASK;
+
+            long x = (w[2 * i] & MASK) + ai * ai + carry;
+            w[2 * i] = (int) x;
+
+            x = (w[2 * i + 1] & MASK) + (x >>> 32);
+            w[2 * i + 1] = (int) x;
+            carry = x >>> 32;
+
+            i = i + 1;
+        }
+
+        // Редукция: обнуляем младшие s слов прибавлением кратных n
+        i = 0;
+        while (i < s) {
+            long m = (w[i] * n0inv) & MASK;
+            carry = 0;
+
+            j = 0;
+            while (j < s) {
+                long x = (w[i + j] & MASK) + m * (n[j] & MASK) + carry;
+                w[i + j] = (int) x;
+                carry = x >>> 32;
+                j = j + 1;
+            }
+
+            int k = i + s;
+            while (carry != 0) {
+                long x = (w[k] & MASK) + carry;
+                w[k] = (int) x;
+                carry = x >>> 32;
+                k = k + 1;
+            }
+
+            i = i + 1;
+        }
+
+        System.arraycopy(w, s, t, 0, s + 1);
+
+        if (t[s] != 0 || compare(t, n) >= 0) {
+            subtractInPlace(t, n);
+        }
+
+        System.arraycopy(t, 0, out, 0, s);
+    }
+
+    /**
+     * out = a + b mod n для a, b < n.
+     */
+    public void add(int[] a, int[] b, int[] out) {
+        long carry = 0;
+
+        int j = 0;
+        while (j < size) {
+            long x = (a[j] & MASK) + (b[j] & MASK) + carry;
+            out[j] = (int) x;
+            carry = x >>> 32;
+            j = j + 1;
+        }
+
+        if (carry != 0 || compare(out, n) >= 0) {
+            subtractInPlace(out, n);
+        }
+    }
+
+    /**
+     * out = a - b mod n для a, b < n.
+     */
+    public void subtract(int[] a, int[] b, int[] out) {
+        long borrow = 0;
+
+        int j = 0;
+        while (j < size) {
+            long x = (a[j] & MASK) - (b[j] & MASK) - borrow;
+            out[j] = (int) x;
+            borrow = (x >>> 63);
+            j = j + 1;
+        }
+
+        if (borrow != 0) {
+            addInPlace(out, n);
+        }
+    }
+
+    public void toMontgomery(int[] x, int[] out) {
+        multiply(x, rSquared, out);
+    }
+
+    public void fromMontgomery(int[] x, int[] out) {
+        multiply(x, unit, out);
+    }
+
+    /**
+     * out = base^exponent mod n; base и out в обычной форме, base < n.
+     */
+    public void modPow(int[] base, BigInteger exponent, int[] out) {
+        if (exponent.signum() < 0) {
+            throw new IllegalArgumentException("Exponent must be non-negative");
+        }
+
+        if (exponent.signum() == 0) {
+            System.arraycopy(unit, 0, out, 0, size);
+            return;
+        }
+
+        int window = Math.min(MontgomeryContext.windowSize(exponent.bitLength()), maxWindow);
+        int tableLength = 1 << (window - 1);
+
+        // table[i] = base^(2i + 1) в форме Монтгомери
+        toMontgomery(base, table[0]);
+
+        if (tableLength > 1) {
+            square(table[0], square);
+
+            int i = 1;
+            while (i < tableLength) {
+                multiply(table[i - 1], square, table[i]);
+                i = i + 1;
+            }
+        }
+
+        boolean started = false;
+
+        int bit = exponent.bitLength() - 1;
+        while (bit >= 0) {
+            if (!exponent.testBit(bit)) {
+                if (started) {
+                    square(acc, acc);
+                }
+
+                bit = bit - 1;
+                continue;
+            }
+
+            int low = Math.max(bit - window + 1, 0);
+            while (!exponent.testBit(low)) {
+                low = low + 1;
+            }
+
+            int value = 0;
+            int j = bit;
+            while (j >= low) {
+                value = (value << 1) | (exponent.testBit(j) ? 1 : 0);
+
+                if (started) {
+                    square(acc, acc);
+                }
+
+                j = j - 1;
+            }
+
+            if (started) {
+                multiply(acc, table[value >>> 1], acc);
+            } else {
+                System.arraycopy(table[value >>> 1], 0, acc, 0, size);
+                started = true;
+            }
+
+            bit = low - 1;
+        }
+
+        fromMontgomery(acc, out);
+    }
+
+    /**
+     * base^exponent mod n для BigInteger; объекты создаются только для входа и результата.
+     */
+    public BigInteger modPow(BigInteger base, BigInteger exponent) {
+        if (base == null || exponent == null) {
+            throw new IllegalArgumentException("Arguments must not be null");
+        }
+
+        BigInteger b = base;
+        if (b.signum() < 0 || b.compareTo(modulus) >= 0) {
+            b = b.mod(modulus);
+        }
+
+        load(b, input);
+        modPow(input, exponent, output);
+
+        return toBigInteger(output);
+    }
+
+    /**
+     * Записать 0 <= value < 2^(32 * getSize()) в массив слов без промежуточных объектов.
+     */
+    public void load(BigInteger value, int[] out) {
+        if (value.signum() < 0 || value.bitLength() > out.length * 32) {
+            throw new IllegalArgumentException("value does not fit in " + out.length + " words");
+        }
+
+        int words = out.length;
+
+        int i = 0;
+        while (i < words) {
+            int w = 0;
+
+            int b = 0;
+            while (b < 32) {
+                if (value.testBit(i * 32 + b)) {
+                    w = w | (1 << b);
+                }
+                b = b + 1;
+            }
+
+            out[i] = w;
+            i = i + 1;
+        }
+    }
+
+    public BigInteger toBigInteger(int[] x) {
+        byte[] bytes = new byte[size * 4];
+
+        int i = 0;
+        while (i < size) {
+            int w = x[i];
+            int off = (size - 1 - i) * 4;
+
+            bytes[off] = (byte) (w >>> 24);
+            bytes[off + 1] = (byte) (w >>> 16);
+            bytes[off + 2] = (byte) (w >>> 8);
+            bytes[off + 3] = (byte) w;
+
+            i = i + 1;
+        }
+
+        return new BigInteger(1, bytes);
+    }
+
+    // Сравнение первых size слов a с модулем (беззнаково)
+    private int compare(int[] a, int[] b) {
+        int i = size - 1;
+        while (i >= 0) {
+            if (a[i] != b[i]) {
+                return Integer.compareUnsigned(a[i], b[i]);
+            }
+            i = i - 1;
+        }
+
+        return 0;
+    }
+
+    // a -= b по первым size словам, заём из старшего слова отбрасывается
+    private void subtractInPlace(int[] a, int[] b) {
+        long borrow = 0;
+
+        int j = 0;
+        while (j < size) {
+            long x = (a[j] & MASK) - (b[j] & MASK) - borrow;
+            a[j] = (int) x;
+            borrow = (x >>> 63);
+            j = j + 1;
+        }
+    }
+
+    private void addInPlace(int[] a, int[] b) {
+        long carry = 0;
+
+        int j = 0;
+        while (j < size) {
+            long x = (a[j] & MASK) + (b[j] & MASK) + carry;
+            a[j] = (int) x;
+            carry = x >>> 32;
+            j = j + 1;
+        }
+    }
+}
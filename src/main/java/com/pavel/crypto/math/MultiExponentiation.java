@@ -0,0 +1,109 @@
+package com.pavel.crypto.math;
+
+import java.math.BigInteger;
+
+/**
+ * g_1^e_1 * ... * g_k^e_k mod n по Страусу: показатели просматриваются окнами
+ * фиксированной ширины одновременно, цепочка возведений в квадрат одна на все
+ * множители, для каждого основания — своя таблица степеней 0..2^w - 1.
+ */
+final class MultiExponentiation {
+
+    // Таблицы растут как k * 2^w, поэтому окно ограничено
+    private static final int MAX_WINDOW = 5;
+
+    private MultiExponentiation() {
+    }
+
+    static BigInteger modPow(ModularArithmetic arithmetic, BigInteger[] bases, BigInteger[] exponents) {
+        int k = bases.length;
+
+        int maxBits = 0;
+        int i = 0;
+        while (i < k) {
+            maxBits = Math.max(maxBits, exponents[i].bitLength());
+            i = i + 1;
+        }
+
+        if (maxBits == 0) {
+            return BigInteger.ONE.mod(arithmetic.getModulus());
+        }
+
+        int window = Math.min(MontgomeryContext.windowSize(maxBits), MAX_WINDOW);
+        int tableSize = 1 << window;
+
+        // tables[i][j] = g_i^j во внутреннем представлении
+        BigInteger[][] tables = new BigInteger[k][];
+
+        i = 0;
+        while (i < k) {
+            if (exponents[i].signum() != 0) {
+                BigInteger[] table = new BigInteger[tableSize];
+                table[1] = arithmetic.enter(bases[i]);
+
+                int j = 2;
+                while (j < tableSize) {
+                    table[j] = arithmetic.multiply(table[j - 1], table[1]);
+                    j = j + 1;
+                }
+
+                tables[i] = table;
+            }
+
+            i = i + 1;
+        }
+
+        BigInteger acc = null;
+
+        // Окна от старших бит к младшим
+        int top = ((maxBits + window - 1) / window) * window - window;
+        while (top >= 0) {
+            if (acc != null) {
+                int s = 0;
+                while (s < window) {
+                    acc = arithmetic.square(acc);
+                    s = s + 1;
+                }
+            }
+
+            i = 0;
+            while (i < k) {
+                if (tables[i] != null) {
+                    int digit = digit(exponents[i], top, window);
+
+                    if (digit != 0) {
+                        if (acc == null) {
+                            acc = tables[i][digit];
+                        } else {
+                            acc = arithmetic.multiply(acc, tables[i][digit]);
+                        }
+                    }
+                }
+
+                i = i + 1;
+            }
+
+            top = top - window;
+        }
+
+        return arithmetic.leave(acc);
+    }
+
+    // Биты [from, from + width) показателя как число
+    static int digit(BigInteger exponent, int from, int width) {
+        int value = 0;
+
+        int b = width - 1;
+        while (b >= 0) {
+            value = value << 1;
+
+            if (exponent.testBit(from + b)) {
+                value = value | 1;
+            }
+
+            b = b - 1;
+        }
+
+        return value;
+    }
+}
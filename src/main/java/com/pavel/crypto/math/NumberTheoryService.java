@@ -1,6 +1,7 @@
 package com.pavel.crypto.math;
 
 import java.math.BigInteger;
+import java.util.concurrent.ExecutorService;
 
 public interface NumberTheoryService {
 
@@ -13,4 +14,24 @@ public interface NumberTheoryService {
     ExtendedGcdResult extendedGcd(BigInteger a, BigInteger b);
 
     BigInteger modPow(BigInteger base, BigInteger exponent, BigInteger modulus);
+
+    /**
+     * Обратные ко всем values по модулю modulus за одно обращение и 3(N - 1) умножений.
+     */
+    BigInteger[] batchInverse(BigInteger[] values, BigInteger modulus);
+
+    /**
+     * То же, отрезками на executor в parallelism задач.
+     */
+    BigInteger[] batchInverse(BigInteger[] values, BigInteger modulus, ExecutorService executor, int parallelism);
+
+    /**
+     * bases[0]^exponents[0] * ... * bases[k-1]^exponents[k-1] mod modulus с общей цепочкой квадратов.
+     */
+    BigInteger multiModPow(BigInteger[] bases, BigInteger[] exponents, BigInteger modulus);
+
+    /**
+     * Предвычисления для многократного возведения base в степени до maxExponentBits бит.
+     */
+    FixedBaseModPow fixedBaseModPow(BigInteger base, BigInteger modulus, int maxExponentBits);
 }
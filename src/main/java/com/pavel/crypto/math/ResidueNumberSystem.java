@@ -0,0 +1,449 @@
+package com.pavel.crypto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Система остаточных классов по попарно взаимно простым модулям m_0, ..., m_(k-1).
+ *
+ * Число x из [0, M), M = m_0 * ... * m_(k-1), представляется остатками x mod m_i.
+ * Обратный переход — КТО по Гарнеру: x = v_0 + v_1 * m_0 + v_2 * m_0 * m_1 + ...,
+ * v_i = (r_i - x_(i-1)) * (m_0 * ... * m_(i-1))^(-1) mod m_i. Обратные
+ * коэффициенты считаются один раз при создании через extendedGcd.
+ *
+ * Пакеты чисел хранятся по модулям: residues[i][j] = values[j] mod m_i, поэтому
+ * сложение, умножение и возведение в степень выполняются независимо по каждому
+ * модулю и при наличии ExecutorService — параллельно.
+ */
+public class ResidueNumberSystem {
+
+    private final NumberTheoryService numberTheory;
+    private final BigInteger[] moduli;
+    private final ExecutorService executor;
+
+    // prefixProducts[i] = m_0 * ... * m_(i-1), prefixProducts[0] = 1
+    private final BigInteger[] prefixProducts;
+
+    // garnerInverses[i] = prefixProducts[i]^(-1) mod m_i
+    private final BigInteger[] garnerInverses;
+
+    private final BigInteger product;
+
+    public ResidueNumberSystem(NumberTheoryService numberTheory, BigInteger[] moduli) {
+        this(numberTheory, moduli, null);
+    }
+
+    public ResidueNumberSystem(NumberTheoryService numberTheory,
+                               BigInteger[] moduli,
+                               ExecutorService executor) {
+        if (numberTheory == null) {
+            throw new IllegalArgumentException("NumberTheoryService must not be null");
+        }
+
+        if (moduli == null || moduli.length == 0) {
+            throw new IllegalArgumentException("moduli must not be empty");
+        }
+
+        int k = moduli.length;
+
+        int i = 0;
+        while (i < k) {
+            if (moduli[i] == null || moduli[i].compareTo(BigInteger.ONE) <= 0) {
+                throw new IllegalArgumentException("moduli must be > 1");
+            }
+
+            int j = 0;
+            while (j < i) {
+                if (!numberTheory.gcd(moduli[i], moduli[j]).equals(BigInteger.ONE)) {
+                    throw new IllegalArgumentException(
+                            "moduli[" + j + "] and moduli[" + i + "] are not coprime"
+                    );
+                }
+                j = j + 1;
+            }
+
+            i = i + 1;
+        }
+
+        this.numberTheory = numberTheory;
+        this.moduli = moduli.clone();
+        this.executor = executor;
+        this.prefixProducts = new BigInteger[k];
+        this.garnerInverses = new BigInteger[k];
+
+        BigInteger prefix = BigInteger.ONE;
+
+        i = 0;
+        while (i < k) {
+            prefixProducts[i] = prefix;
+
+            ExtendedGcdResult egcd = numberTheory.extendedGcd(prefix.mod(moduli[i]), moduli[i]);
+            garnerInverses[i] = egcd.getX().mod(moduli[i]);
+
+            prefix = prefix.multiply(moduli[i]);
+            i = i + 1;
+        }
+
+        this.product = prefix;
+    }
+
+    public int size() {
+        return moduli.length;
+    }
+
+    public BigInteger[] getModuli() {
+        return moduli.clone();
+    }
+
+    // M — произведение всех модулей
+    public BigInteger getProduct() {
+        return product;
+    }
+
+    /**
+     * Остатки x mod m_i.
+     */
+    public BigInteger[] toResidues(BigInteger x) {
+        if (x == null) {
+            throw new IllegalArgumentException("x must not be null");
+        }
+
+        BigInteger[] residues = new BigInteger[moduli.length];
+
+        int i = 0;
+        while (i < moduli.length) {
+            residues[i] = x.mod(moduli[i]);
+            i = i + 1;
+        }
+
+        return residues;
+    }
+
+    /**
+     * Единственное x из [0, M) с x ≡ residues[i] (mod m_i) — алгоритм Гарнера.
+     */
+    public BigInteger recombine(BigInteger[] residues) {
+        checkLanes(residues);
+
+        BigInteger x = residues[0].mod(moduli[0]);
+
+        int i = 1;
+        while (i < moduli.length) {
+            BigInteger m = moduli[i];
+
+            // v_i = (r_i - x) * (m_0 ... m_(i-1))^(-1) mod m_i
+            BigInteger v = residues[i].subtract(x).multiply(garnerInverses[i]).mod(m);
+
+            x = x.add(v.multiply(prefixProducts[i]));
+            i = i + 1;
+        }
+
+        return x;
+    }
+
+    /**
+     * Пакет чисел в представление по модулям: result[i][j] = values[j] mod m_i.
+     */
+    public BigInteger[][] toResidues(final BigInteger[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values must not be null");
+        }
+
+        for (BigInteger value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("values must not contain null");
+            }
+        }
+
+        final BigInteger[][] result = new BigInteger[moduli.length][];
+
+        forEachModulus(new LaneTask() {
+            @Override
+            public void run(int lane) {
+                BigInteger m = moduli[lane];
+                BigInteger[] out = new BigInteger[values.length];
+
+                int j = 0;
+                while (j < values.length) {
+                    out[j] = values[j].mod(m);
+                    j = j + 1;
+                }
+
+                result[lane] = out;
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Обратный переход для пакета; числа восстанавливаются параллельно отрезками.
+     */
+    public BigInteger[] recombine(final BigInteger[][] residues) {
+        final int count = checkBatch(residues);
+        final BigInteger[] result = new BigInteger[count];
+
+        if (executor == null || count < 2) {
+            recombineRange(residues, 0, count, result);
+            return result;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        int chunks = Math.min(count, moduli.length * 4);
+
+        int c = 0;
+        while (c < chunks) {
+            final int from = (int) ((long) count * c / chunks);
+            final int to = (int) ((long) count * (c + 1) / chunks);
+
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    recombineRange(residues, from, to, result);
+                    return null;
+                }
+            });
+
+            c = c + 1;
+        }
+
+        runAll(tasks);
+
+        return result;
+    }
+
+    public BigInteger[][] add(final BigInteger[][] a, final BigInteger[][] b) {
+        final int count = checkPair(a, b);
+
+        final BigInteger[][] result = new BigInteger[moduli.length][];
+
+        forEachModulus(new LaneTask() {
+            @Override
+            public void run(int lane) {
+                BigInteger m = moduli[lane];
+                BigInteger[] out = new BigInteger[count];
+
+                int j = 0;
+                while (j < count) {
+                    out[j] = a[lane][j].add(b[lane][j]).mod(m);
+                    j = j + 1;
+                }
+
+                result[lane] = out;
+            }
+        });
+
+        return result;
+    }
+
+    public BigInteger[][] subtract(final BigInteger[][] a, final BigInteger[][] b) {
+        final int count = checkPair(a, b);
+
+        final BigInteger[][] result = new BigInteger[moduli.length][];
+
+        forEachModulus(new LaneTask() {
+            @Override
+            public void run(int lane) {
+                BigInteger m = moduli[lane];
+                BigInteger[] out = new BigInteger[count];
+
+                int j = 0;
+                while (j < count) {
+                    out[j] = a[lane][j].subtract(b[lane][j]).mod(m);
+                    j = j + 1;
+                }
+
+                result[lane] = out;
+            }
+        });
+
+        return result;
+    }
+
+    public BigInteger[][] multiply(final BigInteger[][] a, final BigInteger[][] b) {
+        final int count = checkPair(a, b);
+
+        final BigInteger[][] result = new BigInteger[moduli.length][];
+
+        forEachModulus(new LaneTask() {
+            @Override
+            public void run(int lane) {
+                BigInteger m = moduli[lane];
+                BigInteger[] out = new BigInteger[count];
+
+                int j = 0;
+                while (j < count) {
+                    out[j] = a[lane][j].multiply(b[lane][j]).mod(m);
+                    j = j + 1;
+                }
+
+                result[lane] = out;
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Каждое число пакета в степень exponent (по каждому модулю своим modPow).
+     */
+    public BigInteger[][] modPow(final BigInteger[][] a, final BigInteger exponent) {
+        final int count = checkBatch(a);
+
+        if (exponent == null) {
+            throw new IllegalArgumentException("exponent must not be null");
+        }
+
+        if (exponent.signum() < 0) {
+            throw new IllegalArgumentException("Exponent must be non-negative");
+        }
+
+        final BigInteger[][] result = new BigInteger[moduli.length][];
+
+        forEachModulus(new LaneTask() {
+            @Override
+            public void run(int lane) {
+                BigInteger m = moduli[lane];
+                BigInteger[] out = new BigInteger[count];
+
+                int j = 0;
+                while (j < count) {
+                    out[j] = numberTheory.modPow(a[lane][j], exponent, m);
+                    j = j + 1;
+                }
+
+                result[lane] = out;
+            }
+        });
+
+        return result;
+    }
+
+    private void recombineRange(BigInteger[][] residues, int from, int to, BigInteger[] result) {
+        BigInteger[] lanes = new BigInteger[moduli.length];
+
+        int j = from;
+        while (j < to) {
+            int i = 0;
+            while (i < moduli.length) {
+                lanes[i] = residues[i][j];
+                i = i + 1;
+            }
+
+            result[j] = recombine(lanes);
+            j = j + 1;
+        }
+    }
+
+    // Операция над одним модулем (строкой пакета)
+    private interface LaneTask {
+        void run(int lane);
+    }
+
+    private void forEachModulus(final LaneTask task) {
+        if (executor == null || moduli.length == 1) {
+            int i = 0;
+            while (i < moduli.length) {
+                task.run(i);
+                i = i + 1;
+            }
+            return;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        int i = 0;
+        while (i < moduli.length) {
+            final int lane = i;
+
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    task.run(lane);
+                    return null;
+                }
+            });
+
+            i = i + 1;
+        }
+
+        runAll(tasks);
+    }
+
+    private void runAll(List<Callable<Void>> tasks) {
+        List<Future<Void>> futures;
+
+        try {
+            futures = executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("RNS task interrupted", e);
+        }
+
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("RNS task interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("RNS task failed", e.getCause());
+            }
+        }
+    }
+
+    private void checkLanes(BigInteger[] residues) {
+        if (residues == null || residues.length != moduli.length) {
+            throw new IllegalArgumentException("residues must have one value per modulus");
+        }
+
+        for (BigInteger r : residues) {
+            if (r == null) {
+                throw new IllegalArgumentException("residues must not contain null");
+            }
+        }
+    }
+
+    // Проверка формы пакета [модуль][число]; возвращает число элементов
+    private int checkBatch(BigInteger[][] batch) {
+        if (batch == null || batch.length != moduli.length) {
+            throw new IllegalArgumentException("batch must have one row per modulus");
+        }
+
+        if (batch[0] == null) {
+            throw new IllegalArgumentException("batch rows must not be null");
+        }
+
+        int count = batch[0].length;
+
+        for (BigInteger[] row : batch) {
+            if (row == null || row.length != count) {
+                throw new IllegalArgumentException("batch rows must have the same length");
+            }
+
+            for (BigInteger value : row) {
+                if (value == null) {
+                    throw new IllegalArgumentException("batch must not contain null");
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private int checkPair(BigInteger[][] a, BigInteger[][] b) {
+        int count = checkBatch(a);
+
+        if (checkBatch(b) != count) {
+            throw new IllegalArgumentException("batches must have the same size");
+        }
+
+        return count;
+    }
+}
@@ -2,6 +2,9 @@ package com.pavel.crypto.modes;
 
 import com.pavel.crypto.core.BlockCipher;
 import com.pavel.crypto.core.CipherMode;
+import com.pavel.crypto.util.BlockXor;
+
+import java.nio.ByteBuffer;
 
 public class CbcMode implements CipherMode {
 
@@ -11,6 +14,7 @@ public class CbcMode implements CipherMode {
 
     private byte[] prevBlock;
     private byte[] tempBlock;
+    private byte[] nextPrevBlock;
 
     @Override
     public int getBlockSize() {
@@ -37,46 +41,113 @@ public class CbcMode implements CipherMode {
 
         this.prevBlock = new byte[blockSize];
         this.tempBlock = new byte[blockSize];
+        this.nextPrevBlock = new byte[blockSize];
 
         System.arraycopy(iv, 0, this.prevBlock, 0, blockSize);
     }
 
     @Override
     public void processBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        processBlocks(in, inOff, out, outOff, 1);
+    }
+
+    @Override
+    public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        if (count <= 0) {
+            return;
+        }
+
         if (forEncryption) {
-            processEncryptBlock(in, inOff, out, outOff);
+            processEncryptBlocks(in, inOff, out, outOff, count);
+        } else if (in == out) {
+            processDecryptBlocksInPlace(in, inOff, out, outOff, count);
         } else {
-            processDecryptBlock(in, inOff, out, outOff);
+            processDecryptBlocks(in, inOff, out, outOff, count);
         }
     }
 
-    private void processEncryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
-        // temp = P_i XOR prevBlock
-        for (int i = 0; i < blockSize; i++) {
-            tempBlock[i] = (byte) (in[inOff + i] ^ prevBlock[i]);
+    @Override
+    public void processBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
+        if (forEncryption) {
+            // temp = P_i XOR prevBlock; prevBlock = C_i = E_K(temp)
+            BlockXor.xor(in, inOff, prevBlock, 0, tempBlock, 0, blockSize);
+            cipher.encryptBlock(tempBlock, 0, prevBlock, 0);
+            out.put(outOff, prevBlock, 0, blockSize);
+        } else {
+            // C_i копируем заранее: in и out могут совпадать
+            in.get(inOff, nextPrevBlock, 0, blockSize);
+            cipher.decryptBlock(nextPrevBlock, 0, tempBlock, 0);
+            BlockXor.xor(tempBlock, 0, prevBlock, 0, out, outOff, blockSize);
+
+            byte[] swap = prevBlock;
+            prevBlock = nextPrevBlock;
+            nextPrevBlock = swap;
         }
+    }
+
+    private void processEncryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        // Предыдущий блок шифртекста берём прямо из out, копируем только последний
+        byte[] prev = prevBlock;
+        int prevOff = 0;
 
-        // C_i = E_K(temp)
-        cipher.encryptBlock(tempBlock, 0, out, outOff);
+        int i = 0;
+        while (i < count) {
+            int blockInOff = inOff + i * blockSize;
+            int blockOutOff = outOff + i * blockSize;
 
-        // prevBlock = C_i
-        for (int i = 0; i < blockSize; i++) {
-            prevBlock[i] = out[outOff + i];
+            // temp = P_i XOR C_{i-1}
+            BlockXor.xor(in, blockInOff, prev, prevOff, tempBlock, 0, blockSize);
+
+            // C_i = E_K(temp)
+            cipher.encryptBlock(tempBlock, 0, out, blockOutOff);
+
+            prev = out;
+            prevOff = blockOutOff;
+            i = i + 1;
         }
+
+        System.arraycopy(prev, prevOff, prevBlock, 0, blockSize);
     }
 
-    private void processDecryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
-        // temp = D_K(C_i)
-        cipher.decryptBlock(in, inOff, tempBlock, 0);
+    private void processDecryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        // in и out различны: C_{i-1} читается прямо из in
+        byte[] prev = prevBlock;
+        int prevOff = 0;
 
-        // P_i = temp XOR prevBlock
-        for (int i = 0; i < blockSize; i++) {
-            out[outOff + i] = (byte) (tempBlock[i] ^ prevBlock[i]);
+        int i = 0;
+        while (i < count) {
+            int blockInOff = inOff + i * blockSize;
+            int blockOutOff = outOff + i * blockSize;
+
+            // P_i = D_K(C_i) XOR C_{i-1}
+            cipher.decryptBlock(in, blockInOff, out, blockOutOff);
+            BlockXor.xor(out, blockOutOff, prev, prevOff, out, blockOutOff, blockSize);
+
+            prev = in;
+            prevOff = blockInOff;
+            i = i + 1;
         }
 
-        // prevBlock = C_i
-        for (int i = 0; i < blockSize; i++) {
-            prevBlock[i] = in[inOff + i];
+        System.arraycopy(prev, prevOff, prevBlock, 0, blockSize);
+    }
+
+    private void processDecryptBlocksInPlace(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        // C_i будет перезаписан, поэтому сохраняем его и меняем буферы местами
+        int i = 0;
+        while (i < count) {
+            int blockInOff = inOff + i * blockSize;
+            int blockOutOff = outOff + i * blockSize;
+
+            System.arraycopy(in, blockInOff, nextPrevBlock, 0, blockSize);
+
+            cipher.decryptBlock(nextPrevBlock, 0, tempBlock, 0);
+            BlockXor.xor(tempBlock, 0, prevBlock, 0, out, blockOutOff, blockSize);
+
+            byte[] swap = prevBlock;
+            prevBlock = nextPrevBlock;
+            nextPrevBlock = swap;
+
+            i = i + 1;
         }
     }
 }
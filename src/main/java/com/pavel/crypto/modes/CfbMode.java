@@ -2,6 +2,9 @@ package com.pavel.crypto.modes;
 
 import com.pavel.crypto.core.BlockCipher;
 import com.pavel.crypto.core.CipherMode;
+import com.pavel.crypto.util.BlockXor;
+
+import java.nio.ByteBuffer;
 
 public class CfbMode implements CipherMode {
 
@@ -43,35 +46,79 @@ public class CfbMode implements CipherMode {
 
     @Override
     public void processBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        processBlocks(in, inOff, out, outOff, 1);
+    }
+
+    @Override
+    public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        if (count <= 0) {
+            return;
+        }
+
+        if (!forEncryption && in == out) {
+            processDecryptBlocksInPlace(in, inOff, out, outOff, count);
+            return;
+        }
+
+        // C_{i-1} берём прямо из out (шифрование) или in (расшифрование),
+        // в feedback копируем только последний блок
+        byte[] prev = feedback;
+        int prevOff = 0;
+
+        int i = 0;
+        while (i < count) {
+            int blockInOff = inOff + i * blockSize;
+            int blockOutOff = outOff + i * blockSize;
+
+            // keystream = E_K(C_{i-1})
+            cipher.encryptBlock(prev, prevOff, keystream, 0);
+
+            // C_i / P_i = in XOR keystream
+            BlockXor.xor(in, blockInOff, keystream, 0, out, blockOutOff, blockSize);
+
+            if (forEncryption) {
+                prev = out;
+                prevOff = blockOutOff;
+            } else {
+                prev = in;
+                prevOff = blockInOff;
+            }
+
+            i = i + 1;
+        }
+
+        System.arraycopy(prev, prevOff, feedback, 0, blockSize);
+    }
+
+    @Override
+    public void processBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
         // keystream = E_K(feedback)
         cipher.encryptBlock(feedback, 0, keystream, 0);
 
         if (forEncryption) {
-            // C_i = keystream XOR P_i
-            for (int i = 0; i < blockSize; i++) {
-                int ks = keystream[i] & 0xFF;
-                int p = in[inOff + i] & 0xFF;
+            // feedback = C_i = keystream XOR P_i
+            BlockXor.xor(in, inOff, keystream, 0, feedback, 0, blockSize);
+            out.put(outOff, feedback, 0, blockSize);
+        } else {
+            // feedback = C_i (до записи out: in и out могут совпадать)
+            in.get(inOff, feedback, 0, blockSize);
+            BlockXor.xor(feedback, 0, keystream, 0, out, outOff, blockSize);
+        }
+    }
 
-                out[outOff + i] = (byte) (ks ^ p);
-            }
+    private void processDecryptBlocksInPlace(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        int i = 0;
+        while (i < count) {
+            int blockInOff = inOff + i * blockSize;
+            int blockOutOff = outOff + i * blockSize;
 
-            // feedback = C_i
-            for (int i = 0; i < blockSize; i++) {
-                feedback[i] = out[outOff + i];
-            }
-        } else {
-            // P_i = keystream XOR C_i
-            for (int i = 0; i < blockSize; i++) {
-                int ks = keystream[i] & 0xFF;
-                int c = in[inOff + i] & 0xFF;
+            cipher.encryptBlock(feedback, 0, keystream, 0);
 
-                out[outOff + i] = (byte) (ks ^ c);
-            }
+            // feedback = C_i до того, как блок будет перезаписан открытым текстом
+            System.arraycopy(in, blockInOff, feedback, 0, blockSize);
+            BlockXor.xor(feedback, 0, keystream, 0, out, blockOutOff, blockSize);
 
-            // feedback = C_i
-            for (int i = 0; i < blockSize; i++) {
-                feedback[i] = in[inOff + i];
-            }
+            i = i + 1;
         }
     }
 }
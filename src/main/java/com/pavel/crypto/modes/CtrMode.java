@@ -1,15 +1,33 @@
 package com.pavel.crypto.modes;
 
 import com.pavel.crypto.core.BlockCipher;
-import com.pavel.crypto.core.CipherMode;
+import com.pavel.crypto.core.SeekableCipherMode;
+import com.pavel.crypto.util.BlockXor;
 
-public class CtrMode implements CipherMode {
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class CtrMode implements SeekableCipherMode {
+
+    // Сколько блоков счётчика шифруется за один вызов encryptBlocks
+    private static final int BATCH_BLOCKS = 64;
+
+    private static final VarHandle LONG_BE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
 
     private BlockCipher cipher;
     private int blockSize;
 
-    private byte[] counter;
-    private byte[] keystreamBlock;
+    // Счётчик как big-endian число из 64-битных слов: counterWords[0] — старшее слово
+    private long[] counterWords;
+
+    // Начальное значение счётчика (IV) для seek
+    private long[] initialWords;
+
+    private byte[] counterBatch;
+    private byte[] keystreamBatch;
 
     @Override
     public int getBlockSize() {
@@ -33,36 +51,150 @@ public class CtrMode implements CipherMode {
             throw new IllegalArgumentException("IV length must equal block size");
         }
 
-        this.counter = new byte[blockSize];
-        this.keystreamBlock = new byte[blockSize];
+        if (blockSize % 8 != 0) {
+            throw new IllegalArgumentException("CTR mode requires block size multiple of 8 bytes");
+        }
+
+        int words = blockSize / 8;
 
-        System.arraycopy(iv, 0, this.counter, 0, blockSize);
+        this.counterWords = new long[words];
+        this.counterBatch = new byte[BATCH_BLOCKS * blockSize];
+        this.keystreamBatch = new byte[BATCH_BLOCKS * blockSize];
+
+        int w = 0;
+        while (w < words) {
+            counterWords[w] = (long) LONG_BE.get(iv, w * 8);
+            w = w + 1;
+        }
+
+        this.initialWords = counterWords.clone();
+    }
+
+    /**
+     * Счётчик = IV + blockIndex (по модулю 2^(8 * blockSize)).
+     */
+    @Override
+    public void seek(long blockIndex) {
+        if (initialWords == null) {
+            throw new IllegalStateException("CTR mode is not initialized");
+        }
+
+        if (blockIndex < 0) {
+            throw new IllegalArgumentException("blockIndex must be >= 0");
+        }
+
+        int w = initialWords.length - 1;
+        long add = blockIndex;
+
+        while (w >= 0) {
+            long sum = initialWords[w] + add;
+
+            // Беззнаковый перенос из младшего слова
+            if (Long.compareUnsigned(sum, initialWords[w]) < 0) {
+                add = 1L;
+            } else {
+                add = 0L;
+            }
+
+            counterWords[w] = sum;
+            w = w - 1;
+        }
     }
 
     @Override
     public void processBlock(byte[] in, int inOff, byte[] out, int outOff) {
-        // keystreamBlock = E_K(counter)
-        cipher.encryptBlock(counter, 0, keystreamBlock, 0);
+        processBlocks(in, inOff, out, outOff, 1);
+    }
+
+    @Override
+    public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        int done = 0;
 
-        // out = in XOR keystreamBlock
-        for (int i = 0; i < blockSize; i++) {
-            out[outOff + i] = (byte) (in[inOff + i] ^ keystreamBlock[i]);
+        while (done < count) {
+            int batch = Math.min(BATCH_BLOCKS, count - done);
+
+            // keystream = E_K(ctr), E_K(ctr + 1), ... для всей пачки сразу
+            fillCounterBatch(batch);
+            cipher.encryptBlocks(counterBatch, 0, keystreamBatch, 0, batch);
+
+            // out = in XOR keystream для всего отрезка
+            int offset = done * blockSize;
+            BlockXor.xor(in, inOff + offset, keystreamBatch, 0,
+                    out, outOff + offset, batch * blockSize);
+
+            done = done + batch;
         }
+    }
 
-        incrementCounter();
+    @Override
+    public void processBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
+        fillCounterBatch(1);
+        cipher.encryptBlock(counterBatch, 0, keystreamBatch, 0);
+
+        BlockXor.xor(in, inOff, keystreamBatch, 0, out, outOff, blockSize);
+    }
+
+    @Override
+    public void processBlocks(ByteBuffer in, int inOff, ByteBuffer out, int outOff, int count) {
+        if (in.hasArray() && out.hasArray()) {
+            processBlocks(in.array(), in.arrayOffset() + inOff,
+                    out.array(), out.arrayOffset() + outOff, count);
+            return;
+        }
+
+        int done = 0;
+
+        while (done < count) {
+            int batch = Math.min(BATCH_BLOCKS, count - done);
+
+            fillCounterBatch(batch);
+            cipher.encryptBlocks(counterBatch, 0, keystreamBatch, 0, batch);
+
+            // Данные не копируются: XOR гаммы прямо по буферу
+            int offset = done * blockSize;
+            BlockXor.xor(in, inOff + offset, keystreamBatch, 0,
+                    out, outOff + offset, batch * blockSize);
+
+            done = done + batch;
+        }
     }
 
     /**
-     * Увеличить счётчик на 1 (big-endian).
+     * Записать count последовательных значений счётчика в counterBatch
+     * и сдвинуть счётчик на count.
+     */
+    private void fillCounterBatch(int count) {
+        int words = counterWords.length;
+
+        int i = 0;
+        while (i < count) {
+            int base = i * blockSize;
+
+            int w = 0;
+            while (w < words) {
+                LONG_BE.set(counterBatch, base + w * 8, counterWords[w]);
+                w = w + 1;
+            }
+
+            incrementCounter();
+            i = i + 1;
+        }
+    }
+
+    /**
+     * Увеличить счётчик на 1 (big-endian, перенос между 64-битными словами).
      */
     private void incrementCounter() {
-        for (int i = blockSize - 1; i >= 0; i--) {
-            int value = (counter[i] & 0xFF) + 1;
-            counter[i] = (byte) value;
+        int w = counterWords.length - 1;
+
+        while (w >= 0) {
+            counterWords[w] = counterWords[w] + 1;
 
-            if ((value & 0x100) == 0) {
+            if (counterWords[w] != 0L) {
                 break;
             }
+
+            w = w - 1;
         }
     }
 }
@@ -3,6 +3,8 @@ package com.pavel.crypto.modes;
 import com.pavel.crypto.core.BlockCipher;
 import com.pavel.crypto.core.CipherMode;
 
+import java.nio.ByteBuffer;
+
 public class EcbMode implements CipherMode {
 
     private BlockCipher cipher;
@@ -34,4 +36,42 @@ public class EcbMode implements CipherMode {
             cipher.decryptBlock(in, inOff, out, outOff);
         }
     }
+
+    @Override
+    public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        int i = 0;
+
+        while (i < count) {
+            int offset = i * blockSize;
+
+            if (forEncryption) {
+                cipher.encryptBlock(in, inOff + offset, out, outOff + offset);
+            } else {
+                cipher.decryptBlock(in, inOff + offset, out, outOff + offset);
+            }
+
+            i = i + 1;
+        }
+    }
+
+    @Override
+    public void processBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
+        if (forEncryption) {
+            cipher.encryptBlock(in, inOff, out, outOff);
+        } else {
+            cipher.decryptBlock(in, inOff, out, outOff);
+        }
+    }
+
+    @Override
+    public void processBlocks(ByteBuffer in, int inOff, ByteBuffer out, int outOff, int count) {
+        // Блоки независимы: шифр сам читает и пишет буфер без промежуточных массивов
+        int i = 0;
+
+        while (i < count) {
+            int offset = i * blockSize;
+            processBlock(in, inOff + offset, out, outOff + offset);
+            i = i + 1;
+        }
+    }
 }
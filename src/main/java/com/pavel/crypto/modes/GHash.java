@@ -0,0 +1,213 @@
+package com.pavel.crypto.modes;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * GHASH над GF(2^128) (NIST SP 800-38D) с 4-битными таблицами Шоупа.
+ *
+ * Для ключа H заранее строятся таблицы для H, H^2, H^3, H^4: четыре блока подряд
+ * сворачиваются как (Y ^ X1)·H^4 ^ X2·H^3 ^ X3·H^2 ^ X4·H, и четыре умножения
+ * не зависят друг от друга. Таблицы после создания не меняются, поэтому один
+ * объект можно использовать из нескольких потоков.
+ */
+public class GHash {
+
+    private static final int BLOCK_SIZE = 16;
+    private static final int AGGREGATE = 4;
+
+    private static final VarHandle LONG_BE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    // Редукция при сдвиге на 4 бита: младшие 4 бита, вытолкнутые вправо
+    private static final long[] LAST4 = {
+            0x0000L, 0x1c20L, 0x3840L, 0x2460L, 0x7080L, 0x6ca0L, 0x48c0L, 0x54e0L,
+            0xe100L, 0xfd20L, 0xd940L, 0xc560L, 0x9180L, 0x8da0L, 0xa9c0L, 0xb5e0L
+    };
+
+    // tablesHigh[k][i], tablesLow[k][i] = i · H^(k+1) для 4-битного i
+    private final long[][] tablesHigh = new long[AGGREGATE][];
+    private final long[][] tablesLow = new long[AGGREGATE][];
+
+    public GHash(byte[] h) {
+        if (h == null || h.length != BLOCK_SIZE) {
+            throw new IllegalArgumentException("H must be 16 bytes");
+        }
+
+        long hHigh = (long) LONG_BE.get(h, 0);
+        long hLow = (long) LONG_BE.get(h, 8);
+
+        buildTable(0, hHigh, hLow);
+
+        long[] power = {hHigh, hLow};
+
+        int k = 1;
+        while (k < AGGREGATE) {
+            // H^(k+1) = H^k · H
+            multiply(power, 0);
+            buildTable(k, power[0], power[1]);
+            k = k + 1;
+        }
+    }
+
+    /**
+     * GHASH_H(A || pad || C || pad || [len(A)]64 || [len(C)]64).
+     */
+    public byte[] hash(byte[] aad, byte[] data, int dataOff, int dataLen) {
+        long[] y = new long[2];
+
+        int aadLen = 0;
+
+        if (aad != null) {
+            aadLen = aad.length;
+            update(y, aad, 0, aadLen);
+        }
+
+        update(y, data, dataOff, dataLen);
+
+        // Блок длин (в битах)
+        y[0] = y[0] ^ ((long) aadLen << 3);
+        y[1] = y[1] ^ ((long) dataLen << 3);
+        multiply(y, 0);
+
+        byte[] result = new byte[BLOCK_SIZE];
+        LONG_BE.set(result, 0, y[0]);
+        LONG_BE.set(result, 8, y[1]);
+
+        return result;
+    }
+
+    /**
+     * Добавить data к аккумулятору y; неполный последний блок дополняется нулями.
+     */
+    private void update(long[] y, byte[] data, int off, int len) {
+        int pos = 0;
+
+        long[] part = new long[2];
+
+        // Агрегированный путь: 4 блока за шаг
+        while (len - pos >= AGGREGATE * BLOCK_SIZE) {
+            int base = off + pos;
+
+            long x0High = y[0] ^ (long) LONG_BE.get(data, base);
+            long x0Low = y[1] ^ (long) LONG_BE.get(data, base + 8);
+
+            y[0] = x0High;
+            y[1] = x0Low;
+            multiply(y, 3);
+
+            int k = 1;
+            while (k < AGGREGATE) {
+                part[0] = (long) LONG_BE.get(data, base + k * BLOCK_SIZE);
+                part[1] = (long) LONG_BE.get(data, base + k * BLOCK_SIZE + 8);
+                multiply(part, AGGREGATE - 1 - k);
+
+                y[0] = y[0] ^ part[0];
+                y[1] = y[1] ^ part[1];
+                k = k + 1;
+            }
+
+            pos = pos + AGGREGATE * BLOCK_SIZE;
+        }
+
+        while (len - pos >= BLOCK_SIZE) {
+            y[0] = y[0] ^ (long) LONG_BE.get(data, off + pos);
+            y[1] = y[1] ^ (long) LONG_BE.get(data, off + pos + 8);
+            multiply(y, 0);
+
+            pos = pos + BLOCK_SIZE;
+        }
+
+        if (pos < len) {
+            byte[] last = new byte[BLOCK_SIZE];
+            System.arraycopy(data, off + pos, last, 0, len - pos);
+
+            y[0] = y[0] ^ (long) LONG_BE.get(last, 0);
+            y[1] = y[1] ^ (long) LONG_BE.get(last, 8);
+            multiply(y, 0);
+        }
+    }
+
+    /**
+     * x = x · H^(power+1), умножение по 4-битной таблице (x[0] — старшие 64 бита).
+     */
+    private void multiply(long[] x, int power) {
+        long[] tHigh = tablesHigh[power];
+        long[] tLow = tablesLow[power];
+
+        long zHigh = 0L;
+        long zLow = 0L;
+
+        // Полубайты от последнего к первому: байт 15 младший, в каждом байте сначала младшая тетрада
+        int i = 15;
+        while (i >= 0) {
+            long word;
+            if (i >= 8) {
+                word = x[1];
+            } else {
+                word = x[0];
+            }
+
+            int b = (int) (word >>> (8 * (7 - (i & 7)))) & 0xFF;
+            int lo = b & 0x0F;
+            int hi = b >>> 4;
+
+            if (i != 15) {
+                int rem = (int) (zLow & 0x0F);
+                zLow = (zHigh << 60) | (zLow >>> 4);
+                zHigh = (zHigh >>> 4) ^ (LAST4[rem] << 48);
+            }
+
+            zHigh = zHigh ^ tHigh[lo];
+            zLow = zLow ^ tLow[lo];
+
+            int rem = (int) (zLow & 0x0F);
+            zLow = (zHigh << 60) | (zLow >>> 4);
+            zHigh = (zHigh >>> 4) ^ (LAST4[rem] << 48);
+
+            zHigh = zHigh ^ tHigh[hi];
+            zLow = zLow ^ tLow[hi];
+
+            i = i - 1;
+        }
+
+        x[0] = zHigh;
+        x[1] = zLow;
+    }
+
+    private void buildTable(int power, long vHigh, long vLow) {
+        long[] tHigh = new long[16];
+        long[] tLow = new long[16];
+
+        // Индекс 8 (старший бит тетрады) соответствует самому элементу
+        tHigh[8] = vHigh;
+        tLow[8] = vLow;
+
+        int i = 4;
+        while (i > 0) {
+            // v = v · x (сдвиг вправо в отражённом порядке бит)
+            long carry = (vLow & 1L) * 0xe1000000L;
+            vLow = (vHigh << 63) | (vLow >>> 1);
+            vHigh = (vHigh >>> 1) ^ (carry << 32);
+
+            tHigh[i] = vHigh;
+            tLow[i] = vLow;
+            i = i >>> 1;
+        }
+
+        i = 2;
+        while (i <= 8) {
+            int j = 1;
+            while (j < i) {
+                tHigh[i + j] = tHigh[i] ^ tHigh[j];
+                tLow[i + j] = tLow[i] ^ tLow[j];
+                j = j + 1;
+            }
+            i = i * 2;
+        }
+
+        tablesHigh[power] = tHigh;
+        tablesLow[power] = tLow;
+    }
+}
@@ -0,0 +1,10 @@
+package com.pavel.crypto.modes;
+
+public class GcmAuthenticationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public GcmAuthenticationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,278 @@
+package com.pavel.crypto.modes;
+
+import com.pavel.crypto.core.BlockCipher;
+import com.pavel.crypto.util.BlockXor;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Galois/Counter Mode (NIST SP 800-38D) для шифров со 128-битным блоком.
+ *
+ * Аутентифицированное шифрование за один проход: CTR-часть (inc32) и GHASH.
+ * Если передан ExecutorService, CTR-часть больших сообщений делится на отрезки,
+ * которые шифруются параллельно (счётчик любого блока вычисляется сразу),
+ * а при расшифровании GHASH считается параллельно с CTR. Для параллельного
+ * режима шифр должен допускать одновременные вызовы encryptBlock
+ * (RijndaelCipher после init — допускает).
+ */
+public class GcmMode {
+
+    private static final int BLOCK_SIZE = 16;
+
+    // Сколько блоков гаммы генерируется за один вызов encryptBlocks
+    private static final int BATCH_BLOCKS = 64;
+
+    // Меньше этого параллелить нет смысла
+    private static final int PARALLEL_MIN_BLOCKS = 1024;
+
+    private static final VarHandle INT_BE =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final int tagLength;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    private BlockCipher cipher;
+    private boolean forEncryption;
+    private GHash ghash;
+    private byte[] j0;
+
+    public GcmMode() {
+        this(BLOCK_SIZE, null, 1);
+    }
+
+    public GcmMode(int tagLength) {
+        this(tagLength, null, 1);
+    }
+
+    public GcmMode(int tagLength, ExecutorService executor, int parallelism) {
+        if (tagLength < 12 || tagLength > BLOCK_SIZE) {
+            throw new IllegalArgumentException("tagLength must be in [12, 16] bytes");
+        }
+
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be >= 1");
+        }
+
+        this.tagLength = tagLength;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    public int getTagLength() {
+        return tagLength;
+    }
+
+    public void init(boolean forEncryption, BlockCipher cipher, byte[] iv) {
+        if (cipher == null) {
+            throw new IllegalArgumentException("cipher must not be null");
+        }
+
+        if (cipher.getBlockSize() != BLOCK_SIZE) {
+            throw new IllegalArgumentException("GCM requires 128-bit block cipher");
+        }
+
+        if (iv == null || iv.length == 0) {
+            throw new IllegalArgumentException("GCM mode requires non-empty IV");
+        }
+
+        this.cipher = cipher;
+        this.forEncryption = forEncryption;
+
+        // H = E_K(0^128)
+        byte[] h = new byte[BLOCK_SIZE];
+        cipher.encryptBlock(h, 0, h, 0);
+        this.ghash = new GHash(h);
+
+        // J0 = IV || 0^31 || 1 для 96-битного IV, иначе GHASH(IV || pad || [len(IV)]64)
+        if (iv.length == 12) {
+            this.j0 = new byte[BLOCK_SIZE];
+            System.arraycopy(iv, 0, j0, 0, 12);
+            j0[15] = 1;
+        } else {
+            this.j0 = ghash.hash(null, iv, 0, iv.length);
+        }
+    }
+
+    /**
+     * Шифрование: возвращает C || T. Расшифрование: принимает C || T,
+     * проверяет тег и возвращает открытый текст.
+     */
+    public byte[] doFinal(byte[] input, byte[] aad) {
+        if (cipher == null) {
+            throw new IllegalStateException("GCM mode is not initialized");
+        }
+
+        if (input == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+
+        if (forEncryption) {
+            return encrypt(input, aad);
+        }
+
+        return decrypt(input, aad);
+    }
+
+    private byte[] encrypt(byte[] plaintext, byte[] aad) {
+        int length = plaintext.length;
+        byte[] output = new byte[length + tagLength];
+
+        // C = CTR(inc32(J0), P)
+        runCtr(plaintext, 0, output, 0, length);
+
+        // T = MSB_t(GHASH(A, C) XOR E_K(J0))
+        byte[] s = ghash.hash(aad, output, 0, length);
+        byte[] tag = computeTag(s);
+
+        System.arraycopy(tag, 0, output, length, tagLength);
+
+        return output;
+    }
+
+    private byte[] decrypt(final byte[] input, final byte[] aad) {
+        if (input.length < tagLength) {
+            throw new IllegalArgumentException("input is shorter than tag");
+        }
+
+        final int length = input.length - tagLength;
+        byte[] plaintext = new byte[length];
+
+        byte[] s;
+
+        if (useParallel(length)) {
+            // GHASH по шифртексту не зависит от CTR — считаем одновременно
+            Future<byte[]> hashFuture = executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    return ghash.hash(aad, input, 0, length);
+                }
+            });
+
+            runCtr(input, 0, plaintext, 0, length);
+            s = await(hashFuture);
+        } else {
+            s = ghash.hash(aad, input, 0, length);
+            runCtr(input, 0, plaintext, 0, length);
+        }
+
+        byte[] tag = computeTag(s);
+
+        // Сравнение без раннего выхода
+        int diff = 0;
+        int i = 0;
+        while (i < tagLength) {
+            diff = diff | (tag[i] ^ input[length + i]);
+            i = i + 1;
+        }
+
+        if (diff != 0) {
+            Arrays.fill(plaintext, (byte) 0);
+            throw new GcmAuthenticationException("GCM tag mismatch");
+        }
+
+        return plaintext;
+    }
+
+    private byte[] computeTag(byte[] s) {
+        byte[] encryptedJ0 = new byte[BLOCK_SIZE];
+        cipher.encryptBlock(j0, 0, encryptedJ0, 0);
+
+        BlockXor.xor(s, 0, encryptedJ0, 0, s, 0, BLOCK_SIZE);
+
+        return s;
+    }
+
+    private boolean useParallel(int length) {
+        int blocks = (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        return executor != null && parallelism > 1 && blocks >= PARALLEL_MIN_BLOCKS;
+    }
+
+    private void runCtr(final byte[] in, final int inOff, final byte[] out, final int outOff, int length) {
+        if (!useParallel(length)) {
+            ctrRange(in, inOff, out, outOff, 0, length);
+            return;
+        }
+
+        int blocks = (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int blocksPerTask = (blocks + parallelism - 1) / parallelism;
+
+        List<Future<Void>> futures = new ArrayList<>();
+
+        int start = 0;
+        while (start < length) {
+            final int from = start;
+            final int to = (int) Math.min((long) length,
+                    (long) from + (long) blocksPerTask * BLOCK_SIZE);
+
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    ctrRange(in, inOff, out, outOff, from, to);
+                    return null;
+                }
+            }));
+
+            start = to;
+        }
+
+        for (Future<Void> future : futures) {
+            await(future);
+        }
+    }
+
+    /**
+     * CTR для байтов [from, to) сообщения; from кратно размеру блока.
+     * Счётчик блока i равен inc32(J0, i + 1).
+     */
+    private void ctrRange(byte[] in, int inOff, byte[] out, int outOff, int from, int to) {
+        byte[] counters = new byte[BATCH_BLOCKS * BLOCK_SIZE];
+        byte[] keystream = new byte[BATCH_BLOCKS * BLOCK_SIZE];
+
+        int j0Low = (int) INT_BE.get(j0, 12);
+        int blockIndex = from / BLOCK_SIZE;
+
+        int pos = from;
+        while (pos < to) {
+            int bytes = Math.min(to - pos, BATCH_BLOCKS * BLOCK_SIZE);
+            int batch = (bytes + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+            int i = 0;
+            while (i < batch) {
+                int base = i * BLOCK_SIZE;
+
+                // Старшие 96 бит — из J0, младшие 32 — счётчик по модулю 2^32
+                System.arraycopy(j0, 0, counters, base, 12);
+                INT_BE.set(counters, base + 12, j0Low + blockIndex + i + 1);
+                i = i + 1;
+            }
+
+            cipher.encryptBlocks(counters, 0, keystream, 0, batch);
+            BlockXor.xor(in, inOff + pos, keystream, 0, out, outOff + pos, bytes);
+
+            blockIndex = blockIndex + batch;
+            pos = pos + bytes;
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("GCM task interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("GCM task failed", e.getCause());
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.pavel.crypto.modes;
 
 import com.pavel.crypto.core.BlockCipher;
 import com.pavel.crypto.core.CipherMode;
+import com.pavel.crypto.util.BlockXor;
+
+import java.nio.ByteBuffer;
 
 public class OfbMode implements CipherMode {
 
@@ -41,18 +44,42 @@ public class OfbMode implements CipherMode {
 
     @Override
     public void processBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        processBlocks(in, inOff, out, outOff, 1);
+    }
+
+    @Override
+    public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        int i = 0;
+
+        while (i < count) {
+            int blockInOff = inOff + i * blockSize;
+            int blockOutOff = outOff + i * blockSize;
+
+            // O_i = E_K(O_{i-1})
+            cipher.encryptBlock(feedback, 0, outputBlock, 0);
+
+            // C_i / P_i = in XOR O_i (симметрично)
+            BlockXor.xor(in, blockInOff, outputBlock, 0, out, blockOutOff, blockSize);
+
+            // feedback = O_i: меняем ссылки вместо копирования
+            byte[] swap = feedback;
+            feedback = outputBlock;
+            outputBlock = swap;
+
+            i = i + 1;
+        }
+    }
+
+    @Override
+    public void processBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
         // O_i = E_K(O_{i-1})
         cipher.encryptBlock(feedback, 0, outputBlock, 0);
 
-        // C_i / P_i = in XOR O_i (симметрично)
-        for (int i = 0; i < blockSize; i++) {
-            int value = (in[inOff + i] & 0xFF) ^ (outputBlock[i] & 0xFF);
-            out[outOff + i] = (byte) value;
-        }
+        BlockXor.xor(in, inOff, outputBlock, 0, out, outOff, blockSize);
 
-        // feedback = O_i
-        for (int i = 0; i < blockSize; i++) {
-            feedback[i] = outputBlock[i];
-        }
+        // feedback = O_i: меняем ссылки вместо копирования
+        byte[] swap = feedback;
+        feedback = outputBlock;
+        outputBlock = swap;
     }
 }
@@ -2,6 +2,9 @@ package com.pavel.crypto.modes;
 
 import com.pavel.crypto.core.BlockCipher;
 import com.pavel.crypto.core.CipherMode;
+import com.pavel.crypto.util.BlockXor;
+
+import java.nio.ByteBuffer;
 
 public class PcbcMode implements CipherMode {
 
@@ -9,8 +12,8 @@ public class PcbcMode implements CipherMode {
     private int blockSize;
     private boolean forEncryption;
 
-    private byte[] previousPlain;
-    private byte[] previousCipher;
+    // chain = m_{i-1} XOR c_{i-1}: обе величины входят в формулы только вместе
+    private byte[] chain;
     private byte[] tempBlock;
 
     @Override
@@ -36,64 +39,79 @@ public class PcbcMode implements CipherMode {
             throw new IllegalArgumentException("IV length must equal block size");
         }
 
-        this.previousPlain = new byte[blockSize];
-        this.previousCipher = new byte[blockSize];
+        this.chain = new byte[blockSize];
         this.tempBlock = new byte[blockSize];
 
-        // m_0 = 0, c_0 = IV
-        System.arraycopy(iv, 0, this.previousCipher, 0, blockSize);
+        // m_0 = 0, c_0 = IV  =>  chain = IV
+        System.arraycopy(iv, 0, this.chain, 0, blockSize);
     }
 
     @Override
     public void processBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        processBlocks(in, inOff, out, outOff, 1);
+    }
+
+    @Override
+    public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        int i = 0;
+
+        while (i < count) {
+            int blockInOff = inOff + i * blockSize;
+            int blockOutOff = outOff + i * blockSize;
+
+            if (forEncryption) {
+                processEncryptBlock(in, blockInOff, out, blockOutOff);
+            } else {
+                processDecryptBlock(in, blockInOff, out, blockOutOff);
+            }
+
+            i = i + 1;
+        }
+    }
+
+    @Override
+    public void processBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
         if (forEncryption) {
-            processEncryptBlock(in, inOff, out, outOff);
+            // temp = m_i XOR chain; chain XOR temp = m_i
+            BlockXor.xor(in, inOff, chain, 0, tempBlock, 0, blockSize);
+            BlockXor.xor(chain, 0, tempBlock, 0, chain, 0, blockSize);
+
+            // c_i = E_k(temp); chain = m_i XOR c_i
+            cipher.encryptBlock(tempBlock, 0, tempBlock, 0);
+            BlockXor.xor(chain, 0, tempBlock, 0, chain, 0, blockSize);
+            out.put(outOff, tempBlock, 0, blockSize);
         } else {
-            processDecryptBlock(in, inOff, out, outOff);
+            // temp = D_k(c_i) XOR chain = m_i
+            in.get(inOff, tempBlock, 0, blockSize);
+            cipher.decryptBlock(tempBlock, 0, tempBlock, 0);
+            BlockXor.xor(tempBlock, 0, chain, 0, tempBlock, 0, blockSize);
+
+            // chain = m_i XOR c_i (c_i читаем до записи out: буферы могут совпадать)
+            BlockXor.xor(in, inOff, tempBlock, 0, chain, 0, blockSize);
+            out.put(outOff, tempBlock, 0, blockSize);
         }
     }
 
     private void processEncryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
         // temp = m_i XOR m_{i-1} XOR c_{i-1}
-        for (int i = 0; i < blockSize; i++) {
-            int currentPlain = in[inOff + i] & 0xFF;
-            int prevPlainValue = previousPlain[i] & 0xFF;
-            int prevCipherValue = previousCipher[i] & 0xFF;
-
-            int value = currentPlain ^ prevPlainValue ^ prevCipherValue;
-
-            tempBlock[i] = (byte) value;
-        }
+        BlockXor.xor(in, inOff, chain, 0, tempBlock, 0, blockSize);
 
         // c_i = E_k(temp)
         cipher.encryptBlock(tempBlock, 0, out, outOff);
 
-        // обновляем m_{i-1}, c_{i-1}
-        for (int i = 0; i < blockSize; i++) {
-            previousPlain[i] = in[inOff + i];
-            previousCipher[i] = out[outOff + i];
-        }
+        // chain = m_i XOR c_i = chain XOR temp XOR c_i (m_i уже мог быть перезаписан)
+        BlockXor.xor(chain, 0, tempBlock, 0, chain, 0, blockSize);
+        BlockXor.xor(chain, 0, out, outOff, chain, 0, blockSize);
     }
 
     private void processDecryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
-        // temp = D_k(c_i)
+        // temp = D_k(c_i) XOR m_{i-1} XOR c_{i-1} = m_i
         cipher.decryptBlock(in, inOff, tempBlock, 0);
+        BlockXor.xor(tempBlock, 0, chain, 0, tempBlock, 0, blockSize);
 
-        // m_i = temp XOR m_{i-1} XOR c_{i-1}
-        for (int i = 0; i < blockSize; i++) {
-            int tempValue = tempBlock[i] & 0xFF;
-            int prevPlainValue = previousPlain[i] & 0xFF;
-            int prevCipherValue = previousCipher[i] & 0xFF;
+        // chain = m_i XOR c_i; c_i читаем до записи out на случай in == out
+        BlockXor.xor(tempBlock, 0, in, inOff, chain, 0, blockSize);
 
-            int value = tempValue ^ prevPlainValue ^ prevCipherValue;
-
-            out[outOff + i] = (byte) value;
-        }
-
-        // обновляем m_{i-1}, c_{i-1}
-        for (int i = 0; i < blockSize; i++) {
-            previousPlain[i] = out[outOff + i];
-            previousCipher[i] = in[inOff + i];
-        }
+        System.arraycopy(tempBlock, 0, out, outOff, blockSize);
     }
 }
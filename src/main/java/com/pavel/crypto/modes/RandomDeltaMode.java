@@ -1,15 +1,19 @@
 package com.pavel.crypto.modes;
 
 import com.pavel.crypto.core.BlockCipher;
-import com.pavel.crypto.core.CipherMode;
+import com.pavel.crypto.core.SeekableCipherMode;
+import com.pavel.crypto.util.BlockXor;
 
-public class RandomDeltaMode implements CipherMode {
+import java.nio.ByteBuffer;
+
+public class RandomDeltaMode implements SeekableCipherMode {
 
     private BlockCipher cipher;
     private int blockSize;
     private boolean forEncryption;
 
     private byte[] currentValue;
+    private byte[] initialValue;
     private long deltaLow64;
     private byte[] tempBlock;
 
@@ -46,45 +50,111 @@ public class RandomDeltaMode implements CipherMode {
         this.tempBlock = new byte[blockSize];
 
         System.arraycopy(iv, 0, this.currentValue, 0, blockSize);
+        this.initialValue = iv.clone();
 
         this.deltaLow64 = extractDeltaFromIv(iv);
     }
 
     @Override
     public void processBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        processBlocks(in, inOff, out, outOff, 1);
+    }
+
+    @Override
+    public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        int i = 0;
+
+        while (i < count) {
+            int blockInOff = inOff + i * blockSize;
+            int blockOutOff = outOff + i * blockSize;
+
+            if (forEncryption) {
+                processEncryptBlock(in, blockInOff, out, blockOutOff);
+            } else {
+                processDecryptBlock(in, blockInOff, out, blockOutOff);
+            }
+
+            incrementCurrentValue();
+            i = i + 1;
+        }
+    }
+
+    @Override
+    public void processBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
         if (forEncryption) {
-            processEncryptBlock(in, inOff, out, outOff);
+            // C_i = E_K(P_i XOR mask_i)
+            BlockXor.xor(in, inOff, currentValue, 0, tempBlock, 0, blockSize);
+            cipher.encryptBlock(tempBlock, 0, tempBlock, 0);
+            out.put(outOff, tempBlock, 0, blockSize);
         } else {
-            processDecryptBlock(in, inOff, out, outOff);
+            // P_i = D_K(C_i) XOR mask_i
+            in.get(inOff, tempBlock, 0, blockSize);
+            cipher.decryptBlock(tempBlock, 0, tempBlock, 0);
+            BlockXor.xor(tempBlock, 0, currentValue, 0, out, outOff, blockSize);
         }
 
         incrementCurrentValue();
     }
 
-    private void processEncryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
-        // X_i = P_i XOR mask_i (mask_i = currentValue)
-        for (int i = 0; i < blockSize; i++) {
-            int p = in[inOff + i] & 0xFF;
-            int mask = currentValue[i] & 0xFF;
+    /**
+     * mask = Initial + blockIndex * Delta (по модулю 2^(8 * blockSize)),
+     * как после blockIndex вызовов incrementCurrentValue.
+     */
+    @Override
+    public void seek(long blockIndex) {
+        if (initialValue == null) {
+            throw new IllegalStateException("RandomDelta mode is not initialized");
+        }
 
-            tempBlock[i] = (byte) (p ^ mask);
+        if (blockIndex < 0) {
+            throw new IllegalArgumentException("blockIndex must be >= 0");
         }
 
+        // 128-битное произведение blockIndex * Delta (Delta беззнаковое)
+        long low = blockIndex * deltaLow64;
+        long high = Math.multiplyHigh(blockIndex, deltaLow64)
+                + ((deltaLow64 >> 63) & blockIndex);
+
+        System.arraycopy(initialValue, 0, currentValue, 0, blockSize);
+
+        int lastIndex = blockSize - 1;
+        int carry = 0;
+
+        int i = 0;
+        while (i < blockSize) {
+            int index = lastIndex - i;
+
+            int addByte;
+            if (i < 8) {
+                addByte = (int) (low >>> (8 * i)) & 0xFF;
+            } else if (i < 16) {
+                addByte = (int) (high >>> (8 * (i - 8))) & 0xFF;
+            } else {
+                addByte = 0;
+            }
+
+            int sum = (currentValue[index] & 0xFF) + addByte + carry;
+
+            currentValue[index] = (byte) (sum & 0xFF);
+            carry = sum >>> 8;
+            i = i + 1;
+        }
+    }
+
+    private void processEncryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        // X_i = P_i XOR mask_i (mask_i = currentValue)
+        BlockXor.xor(in, inOff, currentValue, 0, tempBlock, 0, blockSize);
+
         // C_i = E_K(X_i)
         cipher.encryptBlock(tempBlock, 0, out, outOff);
     }
 
     private void processDecryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
-        // X_i = D_K(C_i)
-        cipher.decryptBlock(in, inOff, tempBlock, 0);
+        // X_i = D_K(C_i), сразу в out (шифр допускает in == out)
+        cipher.decryptBlock(in, inOff, out, outOff);
 
         // P_i = X_i XOR mask_i (mask_i = currentValue)
-        for (int i = 0; i < blockSize; i++) {
-            int x = tempBlock[i] & 0xFF;
-            int mask = currentValue[i] & 0xFF;
-
-            out[outOff + i] = (byte) (x ^ mask);
-        }
+        BlockXor.xor(out, outOff, currentValue, 0, out, outOff, blockSize);
     }
 
     /**
@@ -0,0 +1,128 @@
+package com.pavel.crypto.modes;
+
+import com.pavel.crypto.core.BlockCipher;
+import com.pavel.crypto.core.CipherMode;
+import com.pavel.crypto.util.BlockXor;
+
+/**
+ * Потоковый режим: блочный шифр превращается в побайтовый генератор гаммы
+ * (через CTR или OFB). Длина шифртекста равна длине открытого текста,
+ * паддинг не нужен, неполный блок гаммы продолжается при следующем вызове.
+ */
+public class StreamMode implements CipherMode {
+
+    public enum Keystream {
+        CTR,
+        OFB
+    }
+
+    // Сколько блоков гаммы генерируется за раз (не больше, чем нужно для текущего вызова)
+    private static final int BATCH_BLOCKS = 64;
+
+    private final Keystream keystreamType;
+
+    private CipherMode generator;
+    private int blockSize;
+
+    private byte[] zeroBatch;
+    private byte[] keystream;
+    private int keystreamPos;
+    private int keystreamLen;
+
+    public StreamMode() {
+        this(Keystream.CTR);
+    }
+
+    public StreamMode(Keystream keystreamType) {
+        if (keystreamType == null) {
+            throw new IllegalArgumentException("keystreamType must not be null");
+        }
+
+        this.keystreamType = keystreamType;
+    }
+
+    @Override
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    @Override
+    public void init(boolean forEncryption, BlockCipher cipher, byte[] iv) {
+        if (cipher == null) {
+            throw new IllegalArgumentException("cipher must not be null");
+        }
+
+        if (keystreamType == Keystream.CTR) {
+            this.generator = new CtrMode();
+        } else {
+            this.generator = new OfbMode();
+        }
+
+        // Гамма не зависит от направления: всегда E_K(...)
+        generator.init(true, cipher, iv);
+
+        this.blockSize = cipher.getBlockSize();
+        this.zeroBatch = new byte[BATCH_BLOCKS * blockSize];
+        this.keystream = new byte[BATCH_BLOCKS * blockSize];
+        this.keystreamPos = 0;
+        this.keystreamLen = 0;
+    }
+
+    @Override
+    public void processBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        processBytes(in, inOff, blockSize, out, outOff);
+    }
+
+    @Override
+    public void processBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        processBytes(in, inOff, count * blockSize, out, outOff);
+    }
+
+    /**
+     * out = in XOR гамма для length байт произвольной длины.
+     */
+    public void processBytes(byte[] in, int inOff, int length, byte[] out, int outOff) {
+        if (generator == null) {
+            throw new IllegalStateException("StreamMode is not initialized");
+        }
+
+        if (in == null || out == null) {
+            throw new IllegalArgumentException("in/out must not be null");
+        }
+
+        if (length < 0 || inOff < 0 || outOff < 0
+                || inOff + length > in.length
+                || outOff + length > out.length) {
+            throw new IllegalArgumentException("Invalid offset/length for processBytes");
+        }
+
+        int done = 0;
+
+        while (done < length) {
+            if (keystreamPos == keystreamLen) {
+                refillKeystream(length - done);
+            }
+
+            int chunk = Math.min(length - done, keystreamLen - keystreamPos);
+
+            BlockXor.xor(in, inOff + done, keystream, keystreamPos, out, outOff + done, chunk);
+
+            keystreamPos = keystreamPos + chunk;
+            done = done + chunk;
+        }
+    }
+
+    private void refillKeystream(int bytesNeeded) {
+        int blocks = (bytesNeeded + blockSize - 1) / blockSize;
+
+        if (blocks > BATCH_BLOCKS) {
+            blocks = BATCH_BLOCKS;
+        }
+
+        // Гамма = режим CTR/OFB, применённый к нулевым блокам
+        generator.processBlocks(zeroBatch, 0, keystream, 0, blocks);
+
+        keystreamPos = 0;
+        keystreamLen = blocks * blockSize;
+    }
+}
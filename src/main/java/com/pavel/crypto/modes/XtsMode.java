@@ -0,0 +1,357 @@
+package com.pavel.crypto.modes;
+
+import com.pavel.crypto.core.BlockCipher;
+import com.pavel.crypto.util.BlockXor;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * XTS (IEEE P1619) для шифров со 128-битным блоком: RijndaelCipher(128, ...) и DealCipher.
+ *
+ * Ключ — K1 || K2 (две половины одинаковой длины). Каждый сектор шифруется
+ * независимо: твик T = E_K2(номер сектора, little-endian) и для каждого
+ * следующего блока умножается на x в GF(2^128). Хвост сектора, не кратный
+ * блоку, обрабатывается с кражей шифртекста, поэтому длина сектора не меняется.
+ *
+ * Шифры создаются через supplier: параллельные задачи получают свою пару шифров
+ * (DealCipher не допускает одновременных вызовов).
+ */
+public class XtsMode {
+
+    private static final int BLOCK_SIZE = 16;
+
+    // Меньше этого числа секторов параллелить нет смысла
+    private static final int PARALLEL_MIN_SECTORS = 16;
+
+    private static final VarHandle LONG_LE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Supplier<BlockCipher> cipherSupplier;
+    private final int sectorSize;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    private boolean forEncryption;
+    private byte[] dataKey;
+    private byte[] tweakKey;
+    private BlockCipher dataCipher;
+    private BlockCipher tweakCipher;
+
+    public XtsMode(Supplier<BlockCipher> cipherSupplier, int sectorSize) {
+        this(cipherSupplier, sectorSize, null, 1);
+    }
+
+    public XtsMode(Supplier<BlockCipher> cipherSupplier,
+                   int sectorSize,
+                   ExecutorService executor,
+                   int parallelism) {
+        if (cipherSupplier == null) {
+            throw new IllegalArgumentException("cipherSupplier must not be null");
+        }
+
+        if (sectorSize < BLOCK_SIZE) {
+            throw new IllegalArgumentException("sectorSize must be >= 16 bytes");
+        }
+
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be >= 1");
+        }
+
+        this.cipherSupplier = cipherSupplier;
+        this.sectorSize = sectorSize;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    public int getSectorSize() {
+        return sectorSize;
+    }
+
+    /**
+     * key = K1 || K2: K1 шифрует данные, K2 — номера секторов.
+     */
+    public void init(boolean forEncryption, byte[] key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+
+        if (key.length == 0 || key.length % 2 != 0) {
+            throw new IllegalArgumentException("XTS key must consist of two equal halves");
+        }
+
+        int half = key.length / 2;
+
+        byte[] k1 = Arrays.copyOfRange(key, 0, half);
+        byte[] k2 = Arrays.copyOfRange(key, half, key.length);
+
+        if (Arrays.equals(k1, k2)) {
+            throw new IllegalArgumentException("XTS key halves must differ");
+        }
+
+        this.forEncryption = forEncryption;
+        this.dataKey = k1;
+        this.tweakKey = k2;
+        this.dataCipher = newCipher(forEncryption, k1);
+        this.tweakCipher = newCipher(true, k2);
+    }
+
+    /**
+     * Обработать один сектор произвольной длины (не меньше блока).
+     */
+    public void processSector(long sectorNumber, byte[] in, int inOff, byte[] out, int outOff, int length) {
+        checkInitialized();
+        checkRange(in, inOff, out, outOff, length);
+
+        if (length < BLOCK_SIZE) {
+            throw new IllegalArgumentException("XTS sector must be at least one block");
+        }
+
+        processSector(dataCipher, tweakCipher, sectorNumber, in, inOff, out, outOff, length);
+    }
+
+    /**
+     * Обработать подряд идущие сектора, начиная с firstSector. Все сектора, кроме
+     * последнего, имеют длину sectorSize; последний может быть короче, но не меньше блока.
+     * При наличии ExecutorService сектора делятся между задачами.
+     */
+    public void processSectors(long firstSector, byte[] in, int inOff, byte[] out, int outOff, int length) {
+        checkInitialized();
+        checkRange(in, inOff, out, outOff, length);
+
+        int sectors = (length + sectorSize - 1) / sectorSize;
+        int tail = length - (sectors - 1) * sectorSize;
+
+        if (length > 0 && tail < BLOCK_SIZE) {
+            throw new IllegalArgumentException("Last XTS sector must be at least one block");
+        }
+
+        if (executor == null || parallelism == 1 || sectors < PARALLEL_MIN_SECTORS) {
+            processRange(dataCipher, tweakCipher, firstSector, in, inOff, out, outOff, 0, length);
+            return;
+        }
+
+        runParallel(firstSector, in, inOff, out, outOff, length, sectors);
+    }
+
+    private void runParallel(final long firstSector,
+                             final byte[] in, final int inOff,
+                             final byte[] out, final int outOff,
+                             final int length, int sectors) {
+        int sectorsPerTask = (sectors + parallelism - 1) / parallelism;
+
+        List<Future<Void>> futures = new ArrayList<>();
+
+        int start = 0;
+        while (start < length) {
+            final int from = start;
+            final int to = (int) Math.min((long) length,
+                    (long) from + (long) sectorsPerTask * sectorSize);
+
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    // Своя пара шифров на задачу
+                    BlockCipher data = newCipher(forEncryption, dataKey);
+                    BlockCipher tweak = newCipher(true, tweakKey);
+
+                    processRange(data, tweak, firstSector, in, inOff, out, outOff, from, to);
+                    return null;
+                }
+            }));
+
+            start = to;
+        }
+
+        for (Future<Void> future : futures) {
+            await(future);
+        }
+    }
+
+    /**
+     * Сектора для байтов [from, to); from кратно sectorSize.
+     */
+    private void processRange(BlockCipher data, BlockCipher tweak, long firstSector,
+                              byte[] in, int inOff, byte[] out, int outOff,
+                              int from, int to) {
+        long sector = firstSector + from / sectorSize;
+
+        int pos = from;
+        while (pos < to) {
+            int len = Math.min(sectorSize, to - pos);
+
+            processSector(data, tweak, sector, in, inOff + pos, out, outOff + pos, len);
+
+            sector = sector + 1;
+            pos = pos + len;
+        }
+    }
+
+    private void processSector(BlockCipher data, BlockCipher tweak, long sectorNumber,
+                               byte[] in, int inOff, byte[] out, int outOff, int length) {
+        // T = E_K2(i), номер сектора — 128-битное little-endian число
+        byte[] t = new byte[BLOCK_SIZE];
+        LONG_LE.set(t, 0, sectorNumber);
+        tweak.encryptBlock(t, 0, t, 0);
+
+        byte[] block = new byte[BLOCK_SIZE];
+
+        int fullBlocks = length / BLOCK_SIZE;
+        int remainder = length % BLOCK_SIZE;
+
+        // При краже шифртекста последний полный блок обрабатывается отдельно
+        int plainBlocks = fullBlocks;
+        if (remainder != 0) {
+            plainBlocks = fullBlocks - 1;
+        }
+
+        int i = 0;
+        while (i < plainBlocks) {
+            int off = i * BLOCK_SIZE;
+
+            processBlock(data, t, in, inOff + off, out, outOff + off, block);
+            multiplyByX(t);
+            i = i + 1;
+        }
+
+        if (remainder == 0) {
+            return;
+        }
+
+        int lastOff = plainBlocks * BLOCK_SIZE;
+        int tailOff = lastOff + BLOCK_SIZE;
+
+        if (forEncryption) {
+            stealEncrypt(data, t, in, inOff + lastOff, inOff + tailOff,
+                    out, outOff + lastOff, outOff + tailOff, remainder, block);
+        } else {
+            stealDecrypt(data, t, in, inOff + lastOff, inOff + tailOff,
+                    out, outOff + lastOff, outOff + tailOff, remainder, block);
+        }
+    }
+
+    /**
+     * CC = E_K1(P_{m-1}, T_{m-1}); C_m = первые r байт CC;
+     * C_{m-1} = E_K1(P_m || CC[r..], T_m).
+     */
+    private void stealEncrypt(BlockCipher data, byte[] t,
+                              byte[] in, int lastIn, int tailIn,
+                              byte[] out, int lastOut, int tailOut,
+                              int remainder, byte[] block) {
+        byte[] cc = new byte[BLOCK_SIZE];
+        processBlock(data, t, in, lastIn, cc, 0, block);
+        multiplyByX(t);
+
+        // Хвост входа читается до записи, поэтому in == out допустимо
+        byte[] pp = cc.clone();
+        System.arraycopy(in, tailIn, pp, 0, remainder);
+
+        System.arraycopy(cc, 0, out, tailOut, remainder);
+        processBlock(data, t, pp, 0, out, lastOut, block);
+    }
+
+    /**
+     * PP = D_K1(C_{m-1}, T_m); P_m = первые r байт PP;
+     * P_{m-1} = D_K1(C_m || PP[r..], T_{m-1}).
+     */
+    private void stealDecrypt(BlockCipher data, byte[] t,
+                              byte[] in, int lastIn, int tailIn,
+                              byte[] out, int lastOut, int tailOut,
+                              int remainder, byte[] block) {
+        byte[] tPrev = t.clone();
+        multiplyByX(t);
+
+        byte[] pp = new byte[BLOCK_SIZE];
+        processBlock(data, t, in, lastIn, pp, 0, block);
+
+        byte[] cc = pp.clone();
+        System.arraycopy(in, tailIn, cc, 0, remainder);
+
+        System.arraycopy(pp, 0, out, tailOut, remainder);
+        processBlock(data, tPrev, cc, 0, out, lastOut, block);
+    }
+
+    // out = E_K1(in XOR T) XOR T (или D_K1 при расшифровании)
+    private void processBlock(BlockCipher data, byte[] t,
+                              byte[] in, int inOff, byte[] out, int outOff,
+                              byte[] block) {
+        BlockXor.xor(in, inOff, t, 0, block, 0, BLOCK_SIZE);
+
+        if (forEncryption) {
+            data.encryptBlock(block, 0, block, 0);
+        } else {
+            data.decryptBlock(block, 0, block, 0);
+        }
+
+        BlockXor.xor(block, 0, t, 0, out, outOff, BLOCK_SIZE);
+    }
+
+    /**
+     * T = T · x в GF(2^128) по модулю x^128 + x^7 + x^2 + x + 1 (little-endian).
+     */
+    private static void multiplyByX(byte[] t) {
+        long low = (long) LONG_LE.get(t, 0);
+        long high = (long) LONG_LE.get(t, 8);
+
+        long carry = high >> 63;
+
+        high = (high << 1) | (low >>> 63);
+        low = (low << 1) ^ (carry & 0x87L);
+
+        LONG_LE.set(t, 0, low);
+        LONG_LE.set(t, 8, high);
+    }
+
+    private BlockCipher newCipher(boolean encryption, byte[] key) {
+        BlockCipher cipher = cipherSupplier.get();
+
+        if (cipher == null) {
+            throw new IllegalStateException("cipherSupplier returned null");
+        }
+
+        if (cipher.getBlockSize() != BLOCK_SIZE) {
+            throw new IllegalArgumentException("XTS requires 128-bit block cipher");
+        }
+
+        cipher.init(encryption, key);
+        return cipher;
+    }
+
+    private void checkInitialized() {
+        if (dataCipher == null) {
+            throw new IllegalStateException("XTS mode is not initialized");
+        }
+    }
+
+    private static void checkRange(byte[] in, int inOff, byte[] out, int outOff, int length) {
+        if (in == null || out == null) {
+            throw new IllegalArgumentException("in/out must not be null");
+        }
+
+        if (length < 0 || inOff < 0 || outOff < 0
+                || inOff + length > in.length
+                || outOff + length > out.length) {
+            throw new IllegalArgumentException("Invalid offset/length for XTS");
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("XTS task interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("XTS task failed", e.getCause());
+        }
+    }
+}
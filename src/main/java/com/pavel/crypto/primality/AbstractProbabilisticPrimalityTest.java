@@ -4,6 +4,7 @@ import com.pavel.crypto.math.NumberTheoryService;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.Random;
 
 public abstract class AbstractProbabilisticPrimalityTest implements ProbabilisticPrimalityTest {
 
@@ -41,7 +42,12 @@ public abstract class AbstractProbabilisticPrimalityTest implements Probabilisti
             return false;
         }
 
-        int iterations = computeIterations(minProbability);
+        int iterations = computeIterations(n, minProbability);
+
+        // Малые n: те же итерации на long, без BigInteger
+        if (n.bitLength() < 63) {
+            return runIterations(n.longValue(), iterations);
+        }
 
         int i = 0;
         while (i < iterations) {
@@ -70,7 +76,22 @@ public abstract class AbstractProbabilisticPrimalityTest implements Probabilisti
         return k;
     }
 
+    /**
+     * Число итераций для конкретного n; по умолчанию зависит только от вероятности.
+     */
+    protected int computeIterations(BigInteger n, double minProbability) {
+        return computeIterations(minProbability);
+    }
+
     protected BigInteger randomBase(BigInteger n) {
+        return randomBase(n, random);
+    }
+
+    /**
+     * Случайное основание из [2, n - 2] от заданного генератора
+     * (параллельные потоки используют свои генераторы).
+     */
+    protected BigInteger randomBase(BigInteger n, Random source) {
         BigInteger two = BigInteger.TWO;
         BigInteger max = n.subtract(two);
 
@@ -79,7 +100,7 @@ public abstract class AbstractProbabilisticPrimalityTest implements Probabilisti
 
         boolean done = false;
         while (!done) {
-            BigInteger candidate = new BigInteger(bitLength, random);
+            BigInteger candidate = new BigInteger(bitLength, source);
 
             if (candidate.compareTo(two) >= 0 && candidate.compareTo(max) <= 0) {
                 a = candidate;
@@ -91,4 +112,28 @@ public abstract class AbstractProbabilisticPrimalityTest implements Probabilisti
     }
 
     protected abstract boolean runSingleIteration(BigInteger n, BigInteger a);
+
+    /**
+     * Итерация для n < 2^63; по умолчанию сводится к BigInteger-версии,
+     * тесты переопределяют её примитивной арифметикой.
+     */
+    protected boolean runSingleIteration(long n, long a) {
+        return runSingleIteration(BigInteger.valueOf(n), BigInteger.valueOf(a));
+    }
+
+    private boolean runIterations(long n, int iterations) {
+        int i = 0;
+        while (i < iterations) {
+            // Основание из [2, n - 2]; n нечётно и не меньше 5
+            long a = random.nextLong(2, n - 1);
+
+            if (!runSingleIteration(n, a)) {
+                return false;
+            }
+
+            i = i + 1;
+        }
+
+        return true;
+    }
 }
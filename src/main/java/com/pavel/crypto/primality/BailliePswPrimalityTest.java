@@ -0,0 +1,169 @@
+package com.pavel.crypto.primality;
+
+import com.pavel.crypto.math.NumberTheoryService;
+
+import java.math.BigInteger;
+
+/**
+ * Тест Бэйли–PSW: сильный тест Миллера–Рабина по основанию 2 и сильный тест
+ * Люка с параметрами Селфриджа. Контрпримеры неизвестны; для n < 2^64 ответ точный.
+ * Стоимость фиксирована (одно возведение в степень и одна цепочка Люка),
+ * поэтому minProbability только проверяется на корректность.
+ */
+public class BailliePswPrimalityTest implements ProbabilisticPrimalityTest {
+
+    // Нечётные простые до 47
+    private static final int[] TRIAL_PRIMES = SegmentedPrimeSieve.firstOddPrimes(14);
+
+    private final NumberTheoryService numberTheory;
+    private final MillerRabinPrimalityTest millerRabin;
+
+    public BailliePswPrimalityTest(NumberTheoryService numberTheory) {
+        if (numberTheory == null) {
+            throw new IllegalArgumentException("NumberTheoryService must not be null");
+        }
+
+        this.numberTheory = numberTheory;
+        this.millerRabin = new MillerRabinPrimalityTest(numberTheory);
+    }
+
+    @Override
+    public boolean isProbablyPrime(BigInteger n, double minProbability) {
+        if (n == null) {
+            throw new IllegalArgumentException("n must not be null");
+        }
+
+        if (minProbability < 0.5 || minProbability >= 1.0) {
+            throw new IllegalArgumentException("minProbability must be in [0.5, 1)");
+        }
+
+        if (n.compareTo(BigInteger.TWO) < 0) {
+            return false;
+        }
+
+        if (n.equals(BigInteger.TWO)) {
+            return true;
+        }
+
+        if (!n.testBit(0)) {
+            return false;
+        }
+
+        // Пробное деление отсекает большинство составных без возведений в степень
+        for (int p : TRIAL_PRIMES) {
+            BigInteger bp = BigInteger.valueOf(p);
+
+            if (n.equals(bp)) {
+                return true;
+            }
+
+            if (n.mod(bp).signum() == 0) {
+                return false;
+            }
+        }
+
+        if (n.bitLength() <= 64) {
+            return millerRabin.isPrimeBelow2To64(n);
+        }
+
+        if (!millerRabin.isStrongProbablePrime(n, BigInteger.TWO)) {
+            return false;
+        }
+
+        return isStrongLucasProbablePrime(n);
+    }
+
+    /**
+     * Сильный тест Люка: P = 1, Q = (1 - D) / 4, D — первое из 5, -7, 9, -11, ...
+     * с (D|n) = -1. n + 1 = d * 2^s; n проходит, если U_d = 0 или V_(d*2^r) = 0
+     * для некоторого 0 <= r < s.
+     */
+    boolean isStrongLucasProbablePrime(BigInteger n) {
+        // Для квадратов подходящего D не существует
+        BigInteger root = n.sqrt();
+        if (root.multiply(root).equals(n)) {
+            return false;
+        }
+
+        long d = 5;
+
+        while (true) {
+            int jacobi = numberTheory.jacobiSymbol(BigInteger.valueOf(d), n);
+
+            if (jacobi == -1) {
+                break;
+            }
+
+            if (jacobi == 0 && BigInteger.valueOf(Math.abs(d)).compareTo(n) < 0) {
+                return false;
+            }
+
+            if (d > 0) {
+                d = -(d + 2);
+            } else {
+                d = -d + 2;
+            }
+        }
+
+        BigInteger bigD = BigInteger.valueOf(d).mod(n);
+        BigInteger q = BigInteger.valueOf((1 - d) / 4).mod(n);
+
+        BigInteger nPlusOne = n.add(BigInteger.ONE);
+        int s = nPlusOne.getLowestSetBit();
+        BigInteger k = nPlusOne.shiftRight(s);
+
+        // U_1 = 1, V_1 = P = 1, Q^1
+        BigInteger u = BigInteger.ONE;
+        BigInteger v = BigInteger.ONE;
+        BigInteger qk = q;
+
+        int bit = k.bitLength() - 2;
+        while (bit >= 0) {
+            // Удвоение: U_2k = U_k V_k, V_2k = V_k^2 - 2 Q^k
+            u = u.multiply(v).mod(n);
+            v = v.multiply(v).subtract(qk.shiftLeft(1)).mod(n);
+            qk = qk.multiply(qk).mod(n);
+
+            if (k.testBit(bit)) {
+                // Шаг +1 при P = 1: U_(k+1) = (U + V) / 2, V_(k+1) = (D U + V) / 2
+                BigInteger newU = halve(u.add(v), n);
+                BigInteger newV = halve(bigD.multiply(u).add(v), n);
+
+                u = newU;
+                v = newV;
+                qk = qk.multiply(q).mod(n);
+            }
+
+            bit = bit - 1;
+        }
+
+        if (u.signum() == 0 || v.signum() == 0) {
+            return true;
+        }
+
+        int r = 1;
+        while (r < s) {
+            v = v.multiply(v).subtract(qk.shiftLeft(1)).mod(n);
+
+            if (v.signum() == 0) {
+                return true;
+            }
+
+            qk = qk.multiply(qk).mod(n);
+            r = r + 1;
+        }
+
+        return false;
+    }
+
+    // x / 2 mod n для нечётного n
+    private static BigInteger halve(BigInteger x, BigInteger n) {
+        BigInteger value = x.mod(n);
+
+        if (value.testBit(0)) {
+            value = value.add(n);
+        }
+
+        return value.shiftRight(1);
+    }
+}
@@ -1,5 +1,6 @@
 package com.pavel.crypto.primality;
 
+import com.pavel.crypto.math.LongNumberTheory;
 import com.pavel.crypto.math.NumberTheoryService;
 
 import java.math.BigInteger;
@@ -27,4 +28,13 @@ public class FermatPrimalityTest extends AbstractProbabilisticPrimalityTest {
 
         return true;
     }
+
+    @Override
+    protected boolean runSingleIteration(long n, long a) {
+        if (LongNumberTheory.gcd(a, n) != 1) {
+            return false;
+        }
+
+        return LongNumberTheory.modPow(a, n - 1, n) == 1;
+    }
 }
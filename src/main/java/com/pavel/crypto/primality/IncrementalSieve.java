@@ -0,0 +1,114 @@
+package com.pavel.crypto.primality;
+
+import java.math.BigInteger;
+
+/**
+ * Генератор кандидатов в простые с отсевом по малым простым.
+ *
+ * Остатки стартового нечётного числа по первым smallPrimeCount простым
+ * вычисляются один раз, а при переходе к следующему нечётному кандидату
+ * сдвигаются на 2. Наружу выдаются только кандидаты без малых делителей,
+ * и дорогой вероятностный тест запускается лишь для них.
+ */
+public class IncrementalSieve {
+
+    public static final int DEFAULT_SMALL_PRIME_COUNT = 2048;
+
+    private final int[] smallPrimes;
+    private final int[] residues;
+
+    private final BigInteger base;
+
+    // Текущий кандидат = base + offset
+    private long offset;
+
+    public IncrementalSieve(BigInteger start) {
+        this(start, DEFAULT_SMALL_PRIME_COUNT);
+    }
+
+    /**
+     * start — точка начала поиска (чётное число сдвигается на 1 вверх).
+     */
+    public IncrementalSieve(BigInteger start, int smallPrimeCount) {
+        if (start == null) {
+            throw new IllegalArgumentException("start must not be null");
+        }
+
+        if (start.signum() <= 0) {
+            throw new IllegalArgumentException("start must be positive");
+        }
+
+        if (smallPrimeCount <= 0) {
+            throw new IllegalArgumentException("smallPrimeCount must be >= 1");
+        }
+
+        if (!start.testBit(0)) {
+            start = start.add(BigInteger.ONE);
+        }
+
+        this.base = start;
+        this.smallPrimes = SegmentedPrimeSieve.firstOddPrimes(smallPrimeCount);
+        this.residues = new int[smallPrimes.length];
+
+        int i = 0;
+        while (i < smallPrimes.length) {
+            residues[i] = start.mod(BigInteger.valueOf(smallPrimes[i])).intValue();
+            i = i + 1;
+        }
+
+        this.offset = 0L;
+    }
+
+    /**
+     * Следующий нечётный кандидат (начиная с текущего), не делящийся ни на одно
+     * из малых простых; сам кандидат продвигается за возвращённое значение.
+     */
+    public BigInteger next() {
+        while (hasSmallFactor()) {
+            advance();
+        }
+
+        BigInteger candidate = base.add(BigInteger.valueOf(offset));
+        advance();
+
+        return candidate;
+    }
+
+    public int getSmallPrimeCount() {
+        return smallPrimes.length;
+    }
+
+    private boolean hasSmallFactor() {
+        int i = 0;
+        while (i < residues.length) {
+            if (residues[i] == 0) {
+                // Малое простое само по себе простое
+                return !isSmallPrimeItself(smallPrimes[i]);
+            }
+            i = i + 1;
+        }
+
+        return false;
+    }
+
+    private boolean isSmallPrimeItself(int prime) {
+        return base.bitLength() < 32 && base.longValue() + offset == prime;
+    }
+
+    // Переход к следующему нечётному: все остатки +2 по своим модулям
+    private void advance() {
+        int i = 0;
+        while (i < residues.length) {
+            int r = residues[i] + 2;
+
+            if (r >= smallPrimes[i]) {
+                r = r - smallPrimes[i];
+            }
+
+            residues[i] = r;
+            i = i + 1;
+        }
+
+        offset = offset + 2;
+    }
+}
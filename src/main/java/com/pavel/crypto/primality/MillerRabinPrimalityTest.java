@@ -1,15 +1,124 @@
 package com.pavel.crypto.primality;
 
+import com.pavel.crypto.math.LongNumberTheory;
 import com.pavel.crypto.math.NumberTheoryService;
 
 import java.math.BigInteger;
 
 public class MillerRabinPrimalityTest extends AbstractProbabilisticPrimalityTest {
 
+    // Первые 12 простых (2..37) как основания дают точный ответ для n < 3.18 * 10^23, в том числе для всех n < 2^64
+    private static final long[] DETERMINISTIC_BASES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37};
+
     public MillerRabinPrimalityTest(NumberTheoryService numberTheory) {
         super(numberTheory);
     }
 
+    /**
+     * Для n < 2^64 — детерминированный набор оснований, иначе раунды по общей
+     * оценке 4^(-k): n может быть подобранным составным.
+     */
+    @Override
+    public boolean isProbablyPrime(BigInteger n, double minProbability) {
+        return isProbablyPrime(n, minProbability, false);
+    }
+
+    /**
+     * То же для случайного кандидата (генерация ключей): число раундов по длине n
+     * из таблицы RoundCountPolicy. Для чисел, переданных извне, оценка неверна.
+     */
+    public boolean isProbablePrimeRandomCandidate(BigInteger n, double minProbability) {
+        return isProbablyPrime(n, minProbability, true);
+    }
+
+    private boolean isProbablyPrime(BigInteger n, double minProbability, boolean randomCandidate) {
+        if (n == null) {
+            throw new IllegalArgumentException("n must not be null");
+        }
+
+        if (minProbability < 0.5 || minProbability >= 1.0) {
+            throw new IllegalArgumentException("minProbability must be in [0.5, 1)");
+        }
+
+        if (n.compareTo(BigInteger.TWO) < 0) {
+            return false;
+        }
+
+        if (n.bitLength() <= 64) {
+            return isPrimeBelow2To64(n);
+        }
+
+        if (!n.testBit(0)) {
+            return false;
+        }
+
+        int rounds = randomCandidate
+                ? RoundCountPolicy.millerRabinRounds(n.bitLength(), minProbability)
+                : RoundCountPolicy.worstCaseRounds(minProbability);
+
+        int i = 0;
+        while (i < rounds) {
+            BigInteger a = randomBase(n);
+
+            if (!runSingleIteration(n, a)) {
+                return false;
+            }
+
+            i = i + 1;
+        }
+
+        return true;
+    }
+
+    @Override
+    protected int computeIterations(BigInteger n, double minProbability) {
+        return RoundCountPolicy.worstCaseRounds(minProbability);
+    }
+
+    /**
+     * Точная проверка простоты для 0 <= n < 2^64.
+     */
+    public boolean isPrimeBelow2To64(BigInteger n) {
+        if (n.signum() < 0 || n.bitLength() > 64) {
+            throw new IllegalArgumentException("n must be in [0, 2^64)");
+        }
+
+        if (n.compareTo(BigInteger.TWO) < 0) {
+            return false;
+        }
+
+        if (n.bitLength() < 63) {
+            return LongNumberTheory.isPrime(n.longValue());
+        }
+
+        for (long base : DETERMINISTIC_BASES) {
+            BigInteger a = BigInteger.valueOf(base);
+
+            if (n.equals(a)) {
+                return true;
+            }
+
+            if (n.mod(a).signum() == 0) {
+                return false;
+            }
+        }
+
+        for (long base : DETERMINISTIC_BASES) {
+            if (!isStrongProbablePrime(n, BigInteger.valueOf(base))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Сильная проверка по основанию a (n нечётно, n > 3).
+     */
+    public boolean isStrongProbablePrime(BigInteger n, BigInteger a) {
+        return runSingleIteration(n, a.mod(n));
+    }
+
     @Override
     protected boolean runSingleIteration(BigInteger n, BigInteger a) {
         BigInteger nMinusOne = n.subtract(BigInteger.ONE);
@@ -46,4 +155,9 @@ public class MillerRabinPrimalityTest extends AbstractProbabilisticPrimalityTest
 
         return false;
     }
+
+    @Override
+    protected boolean runSingleIteration(long n, long a) {
+        return LongNumberTheory.isStrongProbablePrime(n, a);
+    }
 }
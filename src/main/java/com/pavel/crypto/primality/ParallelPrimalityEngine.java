@@ -0,0 +1,354 @@
+package com.pavel.crypto.primality;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Параллельная проверка простоты на ForkJoinPool.
+ *
+ * Одно большое число: независимые раунды делятся между потоками, первый найденный
+ * свидетель составности останавливает остальных. Пакет или поток кандидатов:
+ * кандидаты распределяются по потокам, каждый проверяется своими раундами.
+ * У каждого потока пула свой генератор случайных оснований.
+ *
+ * Раунды делятся только для наследников AbstractProbabilisticPrimalityTest;
+ * другие тесты (например, Бэйли–PSW) вызываются целиком, по одному на кандидата.
+ */
+public class ParallelPrimalityEngine implements AutoCloseable {
+
+    // Меньше этой длины раунды дешевле накладных расходов на задачи
+    private static final int PARALLEL_ROUNDS_MIN_BITS = 512;
+
+    // Кандидатов на поток в одной волне поиска
+    private static final int CANDIDATES_PER_WORKER = 4;
+
+    private final ProbabilisticPrimalityTest test;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+
+    private final ThreadLocal<Random> workerRandom = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new SecureRandom();
+        }
+    };
+
+    public ParallelPrimalityEngine(ProbabilisticPrimalityTest test, int parallelism) {
+        if (test == null) {
+            throw new IllegalArgumentException("test must not be null");
+        }
+
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be >= 1");
+        }
+
+        this.test = test;
+        this.parallelism = parallelism;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Проверка одного числа; раунды выполняются параллельно.
+     */
+    public boolean isProbablyPrime(BigInteger n, double minProbability) {
+        checkArguments(n, minProbability);
+
+        if (!(test instanceof AbstractProbabilisticPrimalityTest)
+                || n.bitLength() < PARALLEL_ROUNDS_MIN_BITS
+                || parallelism == 1) {
+            return test.isProbablyPrime(n, minProbability);
+        }
+
+        if (!n.testBit(0)) {
+            return false;
+        }
+
+        final AbstractProbabilisticPrimalityTest roundTest = (AbstractProbabilisticPrimalityTest) test;
+        final BigInteger candidate = n;
+        final AtomicBoolean witnessFound = new AtomicBoolean(false);
+
+        int rounds = roundTest.computeIterations(n, minProbability);
+        int tasks = Math.min(parallelism, rounds);
+
+        List<Callable<Boolean>> roundTasks = new ArrayList<>();
+
+        int i = 0;
+        while (i < tasks) {
+            // Раунды распределяются поровну, первые задачи получают на один больше
+            final int taskRounds = rounds / tasks + (i < rounds % tasks ? 1 : 0);
+
+            roundTasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return runRounds(roundTest, candidate, taskRounds, witnessFound);
+                }
+            });
+
+            i = i + 1;
+        }
+
+        for (Future<Boolean> future : pool.invokeAll(roundTasks)) {
+            if (!await(future)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Проверка списка кандидатов; result[i] относится к candidates.get(i).
+     */
+    public boolean[] testAll(List<BigInteger> candidates, final double minProbability) {
+        if (candidates == null) {
+            throw new IllegalArgumentException("candidates must not be null");
+        }
+
+        checkProbability(minProbability);
+
+        final BigInteger[] values = candidates.toArray(new BigInteger[0]);
+        final boolean[] result = new boolean[values.length];
+
+        for (BigInteger value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("candidates must not contain null");
+            }
+        }
+
+        // Несколько отрезков на поток сглаживают разную стоимость кандидатов
+        int chunks = Math.min(values.length, parallelism * CANDIDATES_PER_WORKER);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        int c = 0;
+        while (c < chunks) {
+            final int from = (int) ((long) values.length * c / chunks);
+            final int to = (int) ((long) values.length * (c + 1) / chunks);
+
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    int j = from;
+                    while (j < to) {
+                        result[j] = testSequential(values[j], minProbability, null, 0);
+                        j = j + 1;
+                    }
+                    return null;
+                }
+            });
+
+            c = c + 1;
+        }
+
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            await(future);
+        }
+
+        return result;
+    }
+
+    /**
+     * Первый (в порядке выдачи) вероятно простой кандидат; null, если кандидаты кончились.
+     * Кандидаты проверяются волнами: как только в волне найдено простое, проверка
+     * стоящих после него кандидатов прерывается.
+     */
+    public BigInteger findFirstPrime(Iterator<BigInteger> candidates, final double minProbability) {
+        if (candidates == null) {
+            throw new IllegalArgumentException("candidates must not be null");
+        }
+
+        checkProbability(minProbability);
+
+        int waveSize = parallelism * CANDIDATES_PER_WORKER;
+
+        while (candidates.hasNext()) {
+            final List<BigInteger> wave = new ArrayList<>();
+
+            while (wave.size() < waveSize && candidates.hasNext()) {
+                BigInteger value = candidates.next();
+
+                if (value == null) {
+                    throw new IllegalArgumentException("candidates must not contain null");
+                }
+
+                wave.add(value);
+            }
+
+            // Индекс первого найденного простого в волне
+            final AtomicInteger firstPrime = new AtomicInteger(Integer.MAX_VALUE);
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+
+            int i = 0;
+            while (i < wave.size()) {
+                final int index = i;
+
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        if (index > firstPrime.get()) {
+                            return null;
+                        }
+
+                        if (testSequential(wave.get(index), minProbability, firstPrime, index)) {
+                            firstPrime.accumulateAndGet(index, Math::min);
+                        }
+
+                        return null;
+                    }
+                });
+
+                i = i + 1;
+            }
+
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                await(future);
+            }
+
+            int found = firstPrime.get();
+            if (found != Integer.MAX_VALUE) {
+                return wave.get(found);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Поиск простого, начиная с start: кандидаты без малых делителей
+     * (IncrementalSieve) проверяются параллельно.
+     */
+    public BigInteger nextProbablePrime(BigInteger start, double minProbability) {
+        if (start == null) {
+            throw new IllegalArgumentException("start must not be null");
+        }
+
+        if (start.compareTo(BigInteger.TWO) <= 0) {
+            return BigInteger.TWO;
+        }
+
+        final IncrementalSieve sieve = new IncrementalSieve(start);
+
+        Iterator<BigInteger> candidates = new Iterator<BigInteger>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public BigInteger next() {
+                return sieve.next();
+            }
+        };
+
+        return findFirstPrime(candidates, minProbability);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Проверка кандидата в текущем потоке. Если задан firstPrime, проверка
+     * прерывается, как только простым оказался кандидат с меньшим индексом
+     * (результат в этом случае не используется).
+     */
+    private boolean testSequential(BigInteger n, double minProbability,
+                                   final AtomicInteger firstPrime, final int index) {
+        if (!(test instanceof AbstractProbabilisticPrimalityTest) || n.bitLength() <= 64) {
+            return test.isProbablyPrime(n, minProbability);
+        }
+
+        if (!n.testBit(0)) {
+            return false;
+        }
+
+        AbstractProbabilisticPrimalityTest roundTest = (AbstractProbabilisticPrimalityTest) test;
+        Random random = workerRandom.get();
+
+        int rounds = roundTest.computeIterations(n, minProbability);
+
+        int i = 0;
+        while (i < rounds) {
+            if (firstPrime != null && firstPrime.get() < index) {
+                return false;
+            }
+
+            BigInteger a = roundTest.randomBase(n, random);
+
+            if (!roundTest.runSingleIteration(n, a)) {
+                return false;
+            }
+
+            i = i + 1;
+        }
+
+        return true;
+    }
+
+    private boolean runRounds(AbstractProbabilisticPrimalityTest roundTest,
+                              BigInteger n,
+                              int rounds,
+                              AtomicBoolean witnessFound) {
+        Random random = workerRandom.get();
+
+        int i = 0;
+        while (i < rounds) {
+            // Другой поток уже нашёл свидетеля
+            if (witnessFound.get()) {
+                return false;
+            }
+
+            BigInteger a = roundTest.randomBase(n, random);
+
+            if (!roundTest.runSingleIteration(n, a)) {
+                witnessFound.set(true);
+                return false;
+            }
+
+            i = i + 1;
+        }
+
+        return true;
+    }
+
+    private static void checkArguments(BigInteger n, double minProbability) {
+        if (n == null) {
+            throw new IllegalArgumentException("n must not be null");
+        }
+
+        checkProbability(minProbability);
+    }
+
+    private static void checkProbability(double minProbability) {
+        if (minProbability < 0.5 || minProbability >= 1.0) {
+            throw new IllegalArgumentException("minProbability must be in [0.5, 1)");
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Primality task interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Primality task failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.pavel.crypto.primality;
+
+/**
+ * Число раундов Миллера–Рабина по требуемой вероятности.
+ *
+ * Для произвольного n годится только общая оценка ошибки раунда — 1/4
+ * (составное может быть подобрано специально). Для случайных кандидатов
+ * (генерация ключей) она сильно завышена: по оценкам Дамгарда–Ландрока–Померанса
+ * (HAC, табл. 4.4) для ошибки не более 2^-80 хватает нескольких раундов.
+ */
+public final class RoundCountPolicy {
+
+    // {минимальная длина в битах, раундов для ошибки 2^-80}, HAC табл. 4.4
+    private static final int[][] RANDOM_CANDIDATE_ROUNDS = {
+            {1300, 2},
+            {850, 3},
+            {650, 4},
+            {550, 5},
+            {450, 6},
+            {400, 7},
+            {350, 8},
+            {300, 9},
+            {250, 12},
+            {200, 15},
+            {150, 18},
+            {100, 27}
+    };
+
+    private static final int TABLE_ERROR_BITS = 80;
+
+    private RoundCountPolicy() {
+    }
+
+    /**
+     * Раундов для любого n: ошибка 4^(-k) не больше 1 - minProbability.
+     */
+    public static int worstCaseRounds(double minProbability) {
+        if (minProbability < 0.5 || minProbability >= 1.0) {
+            throw new IllegalArgumentException("minProbability must be in [0.5, 1)");
+        }
+
+        return Math.max((errorBits(minProbability) + 1) / 2, 1);
+    }
+
+    /**
+     * Раундов для случайного кандидата длины bitLength с вероятностью ошибки
+     * не больше 1 - minProbability. Для чисел, переданных извне, — только worstCaseRounds.
+     */
+    public static int millerRabinRounds(int bitLength, double minProbability) {
+        int worstCase = worstCaseRounds(minProbability);
+        int errorBits = errorBits(minProbability);
+
+        if (errorBits > TABLE_ERROR_BITS) {
+            return worstCase;
+        }
+
+        for (int[] row : RANDOM_CANDIDATE_ROUNDS) {
+            if (bitLength >= row[0]) {
+                return Math.min(worstCase, row[1]);
+            }
+        }
+
+        return worstCase;
+    }
+
+    // k такое, что 2^-k <= 1 - minProbability
+    static int errorBits(double minProbability) {
+        double maxError = 1.0 - minProbability;
+        int k = (int) Math.ceil(Math.log(1.0 / maxError) / Math.log(2.0));
+
+        if (k < 1) {
+            k = 1;
+        }
+
+        return k;
+    }
+}
@@ -0,0 +1,710 @@
+package com.pavel.crypto.primality;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Перечисление простых в отрезке [from, to] сегментированным решетом Эратосфена.
+ *
+ * Хранятся только нечётные числа: бит i отрезка соответствует числу 2i + 1,
+ * установленный бит — составное. Отрезок занимает 32 КБ и помещается в кэш L1.
+ * Кратные 3, 5, 7 и 11 не вычёркиваются, а копируются словами из заранее
+ * построенного шаблона колеса (период 3 * 5 * 7 * 11 слов); остальные базовые
+ * простые вычёркиваются с сохранением позиции между отрезками.
+ *
+ * При наличии ExecutorService отрезки делятся на непрерывные группы, каждая
+ * группа просеивается своей задачей с собственным буфером.
+ *
+ * Таблицы малых простых (primesUpTo, firstPrimes) берутся из общего кэша,
+ * который растёт по мере надобности.
+ */
+public class SegmentedPrimeSieve {
+
+    // Наибольшее допустимое to: базовые простые до sqrt(to) помещаются в int
+    public static final long MAX_VALUE = (long) Integer.MAX_VALUE * Integer.MAX_VALUE;
+
+    public static final int SEGMENT_BYTES = 32 * 1024;
+
+    private static final int SEGMENT_WORDS = SEGMENT_BYTES / 8;
+    private static final long SEGMENT_BITS = SEGMENT_WORDS * 64L;
+
+    // Простые колеса, кроме 2 (чётные не хранятся вовсе)
+    private static final int[] WHEEL_PRIMES = {3, 5, 7, 11};
+    private static final int LAST_WHEEL_PRIME = 11;
+
+    // Бит b слова k установлен, если 2(64k + b) + 1 делится на простое колеса;
+    // шаблон повторяется каждые 3 * 5 * 7 * 11 слов
+    private static final int WHEEL_WORDS = 3 * 5 * 7 * 11;
+    private static final long[] WHEEL_PATTERN = buildWheelPattern();
+
+    // Общая таблица нечётных простых
+    private static OddPrimeTable cachedTable = new OddPrimeTable(new int[0], 0, 1);
+
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    public SegmentedPrimeSieve() {
+        this.executor = null;
+        this.parallelism = 1;
+    }
+
+    public SegmentedPrimeSieve(ExecutorService executor, int parallelism) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be >= 1");
+        }
+
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Число простых в [from, to].
+     */
+    public long count(long from, long to) {
+        checkRange(from, to);
+
+        if (from > to) {
+            return 0;
+        }
+
+        long result = (from <= 2 && to >= 2) ? 1 : 0;
+
+        final long first = firstIndex(from);
+        final long last = lastIndex(to);
+
+        if (first > last) {
+            return result;
+        }
+
+        final OddPrimeTable basePrimes = basePrimes(to);
+
+        if (!isParallel(first, last)) {
+            return result + new Segment(basePrimes).countRange(first, last);
+        }
+
+        List<Callable<Long>> tasks = new ArrayList<>();
+
+        for (final long[] part : split(first, last)) {
+            tasks.add(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    return new Segment(basePrimes).countRange(part[0], part[1]);
+                }
+            });
+        }
+
+        for (Future<Long> future : invokeAll(tasks)) {
+            result = result + await(future);
+        }
+
+        return result;
+    }
+
+    /**
+     * Все простые из [from, to] по возрастанию.
+     */
+    public long[] primes(long from, long to) {
+        checkRange(from, to);
+
+        PrimeList result = new PrimeList();
+
+        if (from > to) {
+            return result.toLongArray();
+        }
+
+        if (from <= 2 && to >= 2) {
+            result.add(2);
+        }
+
+        final long first = firstIndex(from);
+        final long last = lastIndex(to);
+
+        if (first > last) {
+            return result.toLongArray();
+        }
+
+        final OddPrimeTable basePrimes = basePrimes(to);
+
+        if (!isParallel(first, last)) {
+            new Segment(basePrimes).collectRange(first, last, result);
+            return result.toLongArray();
+        }
+
+        List<Callable<PrimeList>> tasks = new ArrayList<>();
+
+        for (final long[] part : split(first, last)) {
+            tasks.add(new Callable<PrimeList>() {
+                @Override
+                public PrimeList call() {
+                    PrimeList list = new PrimeList();
+                    new Segment(basePrimes).collectRange(part[0], part[1], list);
+                    return list;
+                }
+            });
+        }
+
+        // Группы идут по возрастанию, поэтому склейка сохраняет порядок
+        for (Future<PrimeList> future : invokeAll(tasks)) {
+            result.addAll(await(future));
+        }
+
+        return result.toLongArray();
+    }
+
+    /**
+     * Ленивый обход простых из [from, to]: очередной отрезок просеивается,
+     * когда закончились простые предыдущего.
+     */
+    public PrimitiveIterator.OfLong iterator(long from, long to) {
+        checkRange(from, to);
+
+        return new RangeIterator(from, to);
+    }
+
+    /**
+     * Все простые p <= limit (начиная с 2).
+     */
+    public static int[] primesUpTo(int limit) {
+        if (limit < 2) {
+            return new int[0];
+        }
+
+        OddPrimeTable table = oddPrimeTable(limit);
+        int count = table.countUpTo(limit);
+
+        int[] result = new int[count + 1];
+        result[0] = 2;
+        System.arraycopy(table.primes, 0, result, 1, count);
+
+        return result;
+    }
+
+    /**
+     * Первые count простых (2, 3, 5, ...).
+     */
+    public static int[] firstPrimes(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must be >= 0");
+        }
+
+        if (count == 0) {
+            return new int[0];
+        }
+
+        int[] result = new int[count];
+        result[0] = 2;
+        System.arraycopy(firstOddPrimes(count - 1), 0, result, 1, count - 1);
+
+        return result;
+    }
+
+    /**
+     * Первые count нечётных простых (3, 5, 7, ...) — без двойки, как нужно
+     * отсеву нечётных кандидатов.
+     */
+    public static int[] firstOddPrimes(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must be >= 0");
+        }
+
+        // Оценка сверху для n-го простого: n (ln n + ln ln n) при n >= 6
+        int n = count + 1;
+        long limit = 15;
+
+        if (n >= 6) {
+            double logN = Math.log(n);
+            limit = (long) Math.ceil(n * (logN + Math.log(logN))) + 1;
+        }
+
+        if (limit > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("count is too large");
+        }
+
+        return Arrays.copyOf(oddPrimeTable((int) limit).primes, count);
+    }
+
+    /**
+     * Все простые p <= limit в long[] (начиная с 2).
+     */
+    public static long[] primesUpToAsLongs(int limit) {
+        int[] primes = primesUpTo(limit);
+        long[] result = new long[primes.length];
+
+        int i = 0;
+        while (i < primes.length) {
+            result[i] = primes[i];
+            i = i + 1;
+        }
+
+        return result;
+    }
+
+    private boolean isParallel(long first, long last) {
+        return executor != null && parallelism > 1 && last - first >= SEGMENT_BITS;
+    }
+
+    /**
+     * Диапазон индексов [first, last] делится на не более чем parallelism групп
+     * целых отрезков; возвращаются пары {first, last}.
+     */
+    private List<long[]> split(long first, long last) {
+        long start = first & ~63L;
+        long segments = (last - start) / SEGMENT_BITS + 1;
+        long groups = Math.min(parallelism, segments);
+
+        List<long[]> parts = new ArrayList<>();
+
+        long g = 0;
+        while (g < groups) {
+            long fromSegment = segments * g / groups;
+            long toSegment = segments * (g + 1) / groups;
+
+            long partFirst = Math.max(first, start + fromSegment * SEGMENT_BITS);
+            long partLast = Math.min(last, start + toSegment * SEGMENT_BITS - 1);
+
+            parts.add(new long[]{partFirst, partLast});
+            g = g + 1;
+        }
+
+        return parts;
+    }
+
+    private <T> List<Future<T>> invokeAll(List<Callable<T>> tasks) {
+        try {
+            return executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sieve task interrupted", e);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sieve task interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Sieve task failed", e.getCause());
+        }
+    }
+
+    private static void checkRange(long from, long to) {
+        if (from < 0) {
+            throw new IllegalArgumentException("from must be >= 0");
+        }
+
+        if (to > MAX_VALUE) {
+            throw new IllegalArgumentException("to must be <= " + MAX_VALUE);
+        }
+    }
+
+    // Индекс первого нечётного >= from
+    private static long firstIndex(long from) {
+        return from >>> 1;
+    }
+
+    // Индекс последнего нечётного <= to (-1, если такого нет)
+    private static long lastIndex(long to) {
+        if (to < 1) {
+            return -1;
+        }
+
+        return (to - 1) >>> 1;
+    }
+
+    // Нечётные простые до sqrt(to), нужные для вычёркивания (без копирования таблицы)
+    private static OddPrimeTable basePrimes(long to) {
+        int root = (int) sqrt(to);
+        OddPrimeTable table = oddPrimeTable(root);
+
+        return new OddPrimeTable(table.primes, table.countUpTo(root), root);
+    }
+
+    // floor(sqrt(x)) для 0 <= x <= MAX_VALUE
+    private static long sqrt(long x) {
+        long r = (long) Math.sqrt((double) x);
+
+        while (r * r > x) {
+            r = r - 1;
+        }
+
+        while ((r + 1) * (r + 1) <= x) {
+            r = r + 1;
+        }
+
+        return r;
+    }
+
+    /**
+     * Общая таблица нечётных простых, покрывающая limit (может быть длиннее).
+     * При расширении граница как минимум удваивается, чтобы серия растущих
+     * запросов не пересчитывала таблицу каждый раз.
+     */
+    private static synchronized OddPrimeTable oddPrimeTable(int limit) {
+        if (limit <= cachedTable.limit) {
+            return cachedTable;
+        }
+
+        int newLimit = (int) Math.min(Integer.MAX_VALUE, Math.max((long) limit, 2L * cachedTable.limit));
+
+        // Базовые простые до sqrt берутся рекурсивно из той же таблицы
+        OddPrimeTable base = basePrimes(newLimit);
+
+        // Ёмкость по оценке pi(x) < 1.25506 x / ln x, чтобы не копировать растущий массив
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, 1.25506 * newLimit / Math.log(Math.max(newLimit, 3)) + 16);
+
+        IntPrimeList list = new IntPrimeList(capacity);
+        new Segment(base).collectRange(1, lastIndex(newLimit), list);
+
+        cachedTable = new OddPrimeTable(list.values, list.size, newLimit);
+
+        return cachedTable;
+    }
+
+    private static long[] buildWheelPattern() {
+        long[] pattern = new long[WHEEL_WORDS];
+
+        int bit = 0;
+        while (bit < WHEEL_WORDS * 64) {
+            long number = 2L * bit + 1;
+
+            for (int p : WHEEL_PRIMES) {
+                if (number % p == 0) {
+                    pattern[bit >>> 6] |= 1L << (bit & 63);
+                    break;
+                }
+            }
+
+            bit = bit + 1;
+        }
+
+        return pattern;
+    }
+
+    /**
+     * Буфер одного отрезка и позиции вычёркивания базовых простых.
+     * Отрезки должны идти подряд по возрастанию; не потокобезопасен.
+     */
+    private static final class Segment {
+
+        private final int[] primes;
+        private final int size;
+        private final long[] bits = new long[SEGMENT_WORDS];
+
+        // Первые простые таблицы (простые колеса) пропускаются; next[k] — индекс
+        // следующего вычёркиваемого кратного primes[skip + k]
+        private int skip;
+        private long[] next;
+
+        // Индекс бита 0 текущего отрезка (кратен 64)
+        private long low = -1;
+
+        Segment(OddPrimeTable basePrimes) {
+            this.primes = basePrimes.primes;
+            this.size = basePrimes.size;
+        }
+
+        long countRange(long first, long last) {
+            long result = 0;
+
+            long start = first & ~63L;
+            while (start <= last) {
+                sieve(start);
+                result = result + countBits(Math.max(first, start), Math.min(last, start + SEGMENT_BITS - 1));
+                start = start + SEGMENT_BITS;
+            }
+
+            return result;
+        }
+
+        void collectRange(long first, long last, PrimeSink out) {
+            long start = first & ~63L;
+            while (start <= last) {
+                sieve(start);
+                collectBits(Math.max(first, start), Math.min(last, start + SEGMENT_BITS - 1), out);
+                start = start + SEGMENT_BITS;
+            }
+        }
+
+        /**
+         * Просеять отрезок индексов [start, start + SEGMENT_BITS).
+         */
+        void sieve(long start) {
+            if (next == null) {
+                initNext(start);
+            }
+
+            low = start;
+            long high = start + SEGMENT_BITS;
+
+            // Кратные простых колеса — копированием шаблона
+            int k = (int) ((start >>> 6) % WHEEL_WORDS);
+
+            int w = 0;
+            while (w < SEGMENT_WORDS) {
+                bits[w] = WHEEL_PATTERN[k];
+
+                k = k + 1;
+                if (k == WHEEL_WORDS) {
+                    k = 0;
+                }
+
+                w = w + 1;
+            }
+
+            if (start == 0) {
+                // 1 не простое, а сами 3, 5, 7, 11 шаблон пометил как составные
+                bits[0] = (bits[0] | 1L) & ~((1L << 1) | (1L << 2) | (1L << 3) | (1L << 5));
+            }
+
+            int i = 0;
+            while (i < next.length) {
+                long p = primes[skip + i];
+
+                // Квадраты дальше отрезка — у следующих простых тоже
+                if ((p * p) >>> 1 >= high) {
+                    break;
+                }
+
+                long j = next[i];
+                while (j < high) {
+                    int offset = (int) (j - start);
+                    bits[offset >>> 6] |= 1L << (offset & 63);
+                    j = j + p;
+                }
+
+                next[i] = j;
+                i = i + 1;
+            }
+        }
+
+        // Первые кратные для старта с произвольного отрезка
+        private void initNext(long start) {
+            skip = 0;
+            while (skip < size && primes[skip] <= LAST_WHEEL_PRIME) {
+                skip = skip + 1;
+            }
+
+            next = new long[size - skip];
+
+            int i = 0;
+            while (i < next.length) {
+                long p = primes[skip + i];
+                long square = (p * p) >>> 1;
+
+                if (square >= start) {
+                    next[i] = square;
+                } else {
+                    // 2j + 1 ≡ 0 (mod p) ⟺ j ≡ (p - 1) / 2 (mod p)
+                    next[i] = start + Math.floorMod((p >>> 1) - start, p);
+                }
+
+                i = i + 1;
+            }
+        }
+
+        private long countBits(long first, long last) {
+            int a = (int) (first - low);
+            int b = (int) (last - low);
+
+            long result = 0;
+
+            int w = a >>> 6;
+            while (w <= b >>> 6) {
+                result = result + Long.bitCount(~bits[w] & mask(w, a, b));
+                w = w + 1;
+            }
+
+            return result;
+        }
+
+        void collectBits(long first, long last, PrimeSink out) {
+            int a = (int) (first - low);
+            int b = (int) (last - low);
+
+            int w = a >>> 6;
+            while (w <= b >>> 6) {
+                long word = ~bits[w] & mask(w, a, b);
+
+                while (word != 0) {
+                    long index = low + ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                    out.add(2 * index + 1);
+                    word = word & (word - 1);
+                }
+
+                w = w + 1;
+            }
+        }
+
+        // Маска бит слова w, попадающих в [a, b]
+        private static long mask(int w, int a, int b) {
+            long result = -1L;
+
+            if (w == a >>> 6) {
+                result = result & (-1L << (a & 63));
+            }
+
+            if (w == b >>> 6) {
+                result = result & (-1L >>> (63 - (b & 63)));
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Обход по отрезкам: простые очередного отрезка складываются в буфер.
+     */
+    private static final class RangeIterator implements PrimitiveIterator.OfLong {
+
+        private final long last;
+        private final Segment segment;
+
+        private long[] buffer = new long[0];
+        private int position;
+        private long nextStart;
+        private final long first;
+
+        RangeIterator(long from, long to) {
+            long firstIdx = firstIndex(from);
+            long lastIdx = from > to ? -1 : lastIndex(to);
+
+            this.first = firstIdx;
+            this.last = lastIdx;
+            this.nextStart = firstIdx & ~63L;
+            this.segment = lastIdx >= firstIdx ? new Segment(basePrimes(to)) : null;
+
+            if (from <= 2 && to >= 2) {
+                buffer = new long[]{2};
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == buffer.length) {
+                if (segment == null || nextStart > last) {
+                    return false;
+                }
+
+                PrimeList list = new PrimeList();
+
+                segment.sieve(nextStart);
+                segment.collectBits(Math.max(first, nextStart), Math.min(last, nextStart + SEGMENT_BITS - 1), list);
+
+                buffer = list.toLongArray();
+                position = 0;
+                nextStart = nextStart + SEGMENT_BITS;
+            }
+
+            return true;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            long value = buffer[position];
+            position = position + 1;
+
+            return value;
+        }
+    }
+
+    // Получатель найденных простых
+    private interface PrimeSink {
+        void add(long prime);
+    }
+
+    // Растущий массив long без упаковки
+    private static final class PrimeList implements PrimeSink {
+
+        private long[] values = new long[64];
+        private int size;
+
+        @Override
+        public void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            values[size] = value;
+            size = size + 1;
+        }
+
+        void addAll(PrimeList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size = size + other.size;
+        }
+
+        long[] toLongArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    // То же для int: общая таблица до 2^31 занимает вдвое меньше памяти
+    private static final class IntPrimeList implements PrimeSink {
+
+        private int[] values;
+        private int size;
+
+        IntPrimeList(int capacity) {
+            this.values = new int[capacity];
+        }
+
+        @Override
+        public void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            values[size] = (int) value;
+            size = size + 1;
+        }
+    }
+
+    /**
+     * Нечётные простые до limit: primes[0 .. size). Массив может быть длиннее
+     * и общим для нескольких таблиц — он не изменяется.
+     */
+    private static final class OddPrimeTable {
+
+        private final int[] primes;
+        private final int size;
+        private final int limit;
+
+        OddPrimeTable(int[] primes, int size, int limit) {
+            this.primes = primes;
+            this.size = size;
+            this.limit = limit;
+        }
+
+        // Сколько простых таблицы не больше x
+        int countUpTo(int x) {
+            int position = Arrays.binarySearch(primes, 0, size, x);
+
+            if (position >= 0) {
+                return position + 1;
+            }
+
+            return -position - 1;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.pavel.crypto.primality;
 
+import com.pavel.crypto.math.LongNumberTheory;
 import com.pavel.crypto.math.NumberTheoryService;
 
 import java.math.BigInteger;
@@ -39,4 +40,24 @@ public class SolovayStrassenPrimalityTest extends AbstractProbabilisticPrimality
 
         return true;
     }
+
+    @Override
+    protected boolean runSingleIteration(long n, long a) {
+        if (LongNumberTheory.gcd(a, n) != 1) {
+            return false;
+        }
+
+        int jacobi = LongNumberTheory.jacobi(a, n);
+        long mod = LongNumberTheory.modPow(a, (n - 1) >>> 1, n);
+
+        if (jacobi == -1) {
+            return mod == n - 1;
+        }
+
+        if (jacobi == 1) {
+            return mod == 1;
+        }
+
+        return false;
+    }
 }
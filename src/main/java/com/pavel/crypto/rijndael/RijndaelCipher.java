@@ -3,6 +3,8 @@ package com.pavel.crypto.rijndael;
 import com.pavel.crypto.core.BlockCipher;
 import com.pavel.crypto.gf256.Gf256Service;
 
+import java.nio.ByteBuffer;
+
 public class RijndaelCipher implements BlockCipher {
 
     private final int blockSizeBits;
@@ -22,6 +24,10 @@ public class RijndaelCipher implements BlockCipher {
     private boolean forEncryption;
     private int[] roundKeys; // заполняется в init(...)
 
+    // Состояние для ByteBuffer-вариантов: переиспользуется между вызовами,
+    // поэтому их нельзя вызывать на одном экземпляре из нескольких потоков
+    private byte[] bufferState;
+
     public RijndaelCipher(int blockSizeBits,
                           int keySizeBits,
                           Gf256Service gf,
@@ -102,6 +108,60 @@ public class RijndaelCipher implements BlockCipher {
 
         System.arraycopy(in, inOff, state, 0, blockSizeBytes);
 
+        encryptState(state);
+
+        System.arraycopy(state, 0, out, outOff, blockSizeBytes);
+    }
+
+    @Override
+    public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+        if (roundKeys == null) {
+            throw new IllegalStateException("Cipher is not initialized");
+        }
+
+        if (in == null || out == null) {
+            throw new IllegalArgumentException("in/out must not be null");
+        }
+
+        if (count < 0 || inOff < 0 || outOff < 0
+                || inOff + count * blockSizeBytes > in.length
+                || outOff + count * blockSizeBytes > out.length) {
+            throw new IllegalArgumentException("Invalid offset/count for encryptBlocks");
+        }
+
+        // Один массив состояния на всю пачку блоков
+        byte[] state = new byte[blockSizeBytes];
+
+        int i = 0;
+        while (i < count) {
+            int offset = i * blockSizeBytes;
+
+            System.arraycopy(in, inOff + offset, state, 0, blockSizeBytes);
+            encryptState(state);
+            System.arraycopy(state, 0, out, outOff + offset, blockSizeBytes);
+
+            i = i + 1;
+        }
+    }
+
+    @Override
+    public void encryptBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
+        if (in == null || out == null) {
+            throw new IllegalArgumentException("in/out must not be null");
+        }
+
+        if (in.hasArray() && out.hasArray()) {
+            encryptBlock(in.array(), in.arrayOffset() + inOff,
+                    out.array(), out.arrayOffset() + outOff);
+            return;
+        }
+
+        byte[] state = loadBufferState(in, inOff, out, outOff);
+        encryptState(state);
+        out.put(outOff, state, 0, blockSizeBytes);
+    }
+
+    private void encryptState(byte[] state) {
         addRoundKey(state, 0);
 
         int round = 1;
@@ -116,8 +176,6 @@ public class RijndaelCipher implements BlockCipher {
         subBytes(state);
         shiftRows(state);
         addRoundKey(state, Nr);
-
-        System.arraycopy(state, 0, out, outOff, blockSizeBytes);
     }
 
     @Override
@@ -143,6 +201,56 @@ public class RijndaelCipher implements BlockCipher {
 
         System.arraycopy(in, inOff, state, 0, blockSizeBytes);
 
+        decryptState(state);
+
+        System.arraycopy(state, 0, out, outOff, blockSizeBytes);
+    }
+
+    @Override
+    public void decryptBlock(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
+        if (in == null || out == null) {
+            throw new IllegalArgumentException("in/out must not be null");
+        }
+
+        if (in.hasArray() && out.hasArray()) {
+            decryptBlock(in.array(), in.arrayOffset() + inOff,
+                    out.array(), out.arrayOffset() + outOff);
+            return;
+        }
+
+        byte[] state = loadBufferState(in, inOff, out, outOff);
+        decryptState(state);
+        out.put(outOff, state, 0, blockSizeBytes);
+    }
+
+    /**
+     * Прочитать блок из буфера в переиспользуемый массив состояния.
+     * Direct-буфер читается одним абсолютным bulk get, без временных массивов.
+     */
+    private byte[] loadBufferState(ByteBuffer in, int inOff, ByteBuffer out, int outOff) {
+        if (roundKeys == null) {
+            throw new IllegalStateException("Cipher is not initialized");
+        }
+
+        if (inOff < 0 || outOff < 0
+                || inOff + blockSizeBytes > in.limit()
+                || outOff + blockSizeBytes > out.limit()) {
+            throw new IllegalArgumentException("Invalid offset for ByteBuffer block");
+        }
+
+        if (out.isReadOnly()) {
+            throw new IllegalArgumentException("out must not be read-only");
+        }
+
+        if (bufferState == null) {
+            bufferState = new byte[blockSizeBytes];
+        }
+
+        in.get(inOff, bufferState, 0, blockSizeBytes);
+        return bufferState;
+    }
+
+    private void decryptState(byte[] state) {
         addRoundKey(state, Nr);
 
         int round = Nr - 1;
@@ -157,8 +265,6 @@ public class RijndaelCipher implements BlockCipher {
         invShiftRows(state);
         invSubBytes(state);
         addRoundKey(state, 0);
-
-        System.arraycopy(state, 0, out, outOff, blockSizeBytes);
     }
 
     // S-box и Inv S-box
@@ -328,19 +434,24 @@ public class RijndaelCipher implements BlockCipher {
             return;
         }
 
-        byte[] temp = new byte[Nb];
+        // Циклический сдвиг влево на месте тремя разворотами:
+        // rev(0..shift), rev(shift..Nb), rev(0..Nb)
+        reverseRow(state, row, 0, shift - 1);
+        reverseRow(state, row, shift, Nb - 1);
+        reverseRow(state, row, 0, Nb - 1);
+    }
+
+    private void reverseRow(byte[] state, int row, int from, int to) {
+        while (from < to) {
+            int a = row + 4 * from;
+            int b = row + 4 * to;
 
-        int c = 0;
-        while (c < Nb) {
-            int srcCol = (c + shift) % Nb;
-            temp[c] = state[row + 4 * srcCol];
-            c = c + 1;
-        }
+            byte t = state[a];
+            state[a] = state[b];
+            state[b] = t;
 
-        c = 0;
-        while (c < Nb) {
-            state[row + 4 * c] = temp[c];
-            c = c + 1;
+            from = from + 1;
+            to = to - 1;
         }
     }
 
@@ -0,0 +1,123 @@
+package com.pavel.crypto.rsa;
+
+import com.pavel.crypto.math.NumberTheoryService;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Операция закрытым ключом через КТО: по одному возведению в степень для каждого
+ * простого множителя (p, q и r_i многопростого ключа) и рекомбинация Гарнера.
+ */
+final class RsaCrt {
+
+    private RsaCrt() {
+    }
+
+    static BigInteger decrypt(NumberTheoryService numberTheory, BigInteger c, RsaPrivateKey key) {
+        BigInteger p = key.getPrimeP();
+        BigInteger q = key.getPrimeQ();
+
+        // m1 = c^dP mod p, m2 = c^dQ mod q
+        BigInteger m1 = numberTheory.modPow(c.mod(p), key.getPrimeExponentP(), p);
+        BigInteger m2 = numberTheory.modPow(c.mod(q), key.getPrimeExponentQ(), q);
+
+        List<BigInteger> others = new ArrayList<>();
+
+        for (RsaOtherPrimeInfo info : key.getOtherPrimes()) {
+            BigInteger r = info.getPrime();
+            others.add(numberTheory.modPow(c.mod(r), info.getExponent(), r));
+        }
+
+        return garner(m1, m2, others, key);
+    }
+
+    /**
+     * То же, но все остатки, кроме m2, считаются в executor параллельно
+     * с m2 в текущем потоке.
+     */
+    static BigInteger decryptParallel(final NumberTheoryService numberTheory,
+                                      final BigInteger c,
+                                      final RsaPrivateKey key,
+                                      ExecutorService executor) {
+        final BigInteger p = key.getPrimeP();
+        BigInteger q = key.getPrimeQ();
+
+        Future<BigInteger> m1Future = executor.submit(new Callable<BigInteger>() {
+            @Override
+            public BigInteger call() {
+                return numberTheory.modPow(c.mod(p), key.getPrimeExponentP(), p);
+            }
+        });
+
+        List<Future<BigInteger>> otherFutures = new ArrayList<>();
+
+        for (final RsaOtherPrimeInfo info : key.getOtherPrimes()) {
+            otherFutures.add(executor.submit(new Callable<BigInteger>() {
+                @Override
+                public BigInteger call() {
+                    BigInteger r = info.getPrime();
+                    return numberTheory.modPow(c.mod(r), info.getExponent(), r);
+                }
+            }));
+        }
+
+        BigInteger m2 = numberTheory.modPow(c.mod(q), key.getPrimeExponentQ(), q);
+
+        BigInteger m1 = await(m1Future);
+
+        List<BigInteger> others = new ArrayList<>();
+
+        for (Future<BigInteger> future : otherFutures) {
+            others.add(await(future));
+        }
+
+        return garner(m1, m2, others, key);
+    }
+
+    /**
+     * m = m2 + q * ((m1 - m2) * qInv mod p), затем для каждого r_i (PKCS#1):
+     * m = m + R * ((m_i - m) * t_i mod r_i), R — произведение предыдущих простых.
+     */
+    private static BigInteger garner(BigInteger m1, BigInteger m2, List<BigInteger> others, RsaPrivateKey key) {
+        BigInteger p = key.getPrimeP();
+        BigInteger q = key.getPrimeQ();
+
+        BigInteger h = m1.subtract(m2).multiply(key.getCrtCoefficient()).mod(p);
+        BigInteger m = m2.add(h.multiply(q));
+
+        BigInteger product = p.multiply(q);
+
+        List<RsaOtherPrimeInfo> infos = key.getOtherPrimes();
+
+        int i = 0;
+        while (i < infos.size()) {
+            RsaOtherPrimeInfo info = infos.get(i);
+            BigInteger r = info.getPrime();
+
+            BigInteger hi = others.get(i).subtract(m).multiply(info.getCoefficient()).mod(r);
+            m = m.add(product.multiply(hi));
+
+            product = product.multiply(r);
+            i = i + 1;
+        }
+
+        return m;
+    }
+
+    private static BigInteger await(Future<BigInteger> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("CRT task interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("CRT task failed", e.getCause());
+        }
+    }
+}
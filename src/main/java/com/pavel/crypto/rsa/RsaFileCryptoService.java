@@ -3,18 +3,41 @@ package com.pavel.crypto.rsa;
 import com.pavel.crypto.math.NumberTheoryService; // поправь пакет под свой
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 
 public class RsaFileCryptoService implements AutoCloseable {
 
+    // Потоковый формат: заголовок блока — 2 байта, старший бит — признак последнего блока
+    private static final int STREAM_HEADER_LEN = 2;
+    private static final int FINAL_FLAG = 0x8000;
+    private static final int MAX_STREAM_DATA_LEN = 0x7FFF;
+
+    // Блоков на одну задачу в пачке потокового режима
+    private static final int STREAM_BLOCKS_PER_THREAD = 16;
+
     private final NumberTheoryService numberTheoryService;
     private final ExecutorService executor;
 
+    // Отдельный пул для блоков: async-задачи из executor ждут его,
+    // не занимая собственные потоки под вложенные задачи
+    private final ForkJoinPool blockPool;
+    private final int parallelism;
+
     public RsaFileCryptoService(NumberTheoryService numberTheoryService, int threadCount) {
         if (numberTheoryService == null) {
             throw new IllegalArgumentException("numberTheoryService must not be null");
@@ -26,6 +49,8 @@ public class RsaFileCryptoService implements AutoCloseable {
 
         this.numberTheoryService = numberTheoryService;
         this.executor = Executors.newFixedThreadPool(threadCount);
+        this.blockPool = new ForkJoinPool(threadCount);
+        this.parallelism = threadCount;
     }
 
     // Синхронное шифрование / расшифрование файлов
@@ -68,9 +93,26 @@ public class RsaFileCryptoService implements AutoCloseable {
             throw new IllegalArgumentException("n/d must not be null");
         }
 
+        decryptFile(input, output, new RsaPrivateKey(n, d));
+    }
+
+    // Если у ключа есть параметры КТО, блоки расшифровываются через КТО
+    public void decryptFile(Path input,
+                            Path output,
+                            RsaPrivateKey privateKey) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null");
+        }
+
+        checkPrivateKey(privateKey);
+
         byte[] cipherData = Files.readAllBytes(input);
 
-        byte[] decrypted = decryptBytes(cipherData, n, d);
+        byte[] decrypted = decryptBytes(cipherData, privateKey);
 
         Files.write(output, decrypted);
     }
@@ -123,36 +165,8 @@ public class RsaFileCryptoService implements AutoCloseable {
         int cipherBlockSize = keyBytes;
         byte[] result = new byte[blockCount * cipherBlockSize];
 
-        int plainPos = 0;
-        int outPos = 0;
-
-        int i = 0;
-        while (i < blockCount) {
-            int bytesLeft = totalPlain - plainPos;
-            int currentBlockLen = maxPlainBlockLen;
-
-            if (bytesLeft < maxPlainBlockLen) {
-                currentBlockLen = bytesLeft;
-            }
-
-            byte[] block = new byte[maxPlainBlockLen];
-
-            if (currentBlockLen > 0) {
-                System.arraycopy(withLen, plainPos, block, 0, currentBlockLen);
-            }
-
-            plainPos = plainPos + currentBlockLen;
-
-            BigInteger m = new BigInteger(1, block);
-            BigInteger c = numberTheoryService.modPow(m, e, n);
-
-            byte[] cipherBlock = toFixedLengthBytes(c, cipherBlockSize);
-
-            System.arraycopy(cipherBlock, 0, result, outPos, cipherBlockSize);
-            outPos = outPos + cipherBlockSize;
-
-            i = i + 1;
-        }
+        // Последний неполный блок дополняется нулями внутри transformBlocks
+        transformBlocks(withLen, maxPlainBlockLen, result, cipherBlockSize, blockCount, e, n, null);
 
         return result;
     }
@@ -160,13 +174,22 @@ public class RsaFileCryptoService implements AutoCloseable {
     public byte[] decryptBytes(byte[] cipherData,
                                BigInteger n,
                                BigInteger d) {
+        if (n == null || d == null) {
+            throw new IllegalArgumentException("n/d must not be null");
+        }
+
+        return decryptBytes(cipherData, new RsaPrivateKey(n, d));
+    }
+
+    public byte[] decryptBytes(byte[] cipherData, RsaPrivateKey privateKey) {
         if (cipherData == null) {
             throw new IllegalArgumentException("cipherData must not be null");
         }
 
-        if (n == null || d == null) {
-            throw new IllegalArgumentException("n/d must not be null");
-        }
+        checkPrivateKey(privateKey);
+
+        BigInteger n = privateKey.getModulus();
+        BigInteger d = privateKey.getExponent();
 
         if (n.signum() <= 0) {
             throw new IllegalArgumentException("n must be positive");
@@ -187,25 +210,7 @@ public class RsaFileCryptoService implements AutoCloseable {
         int blockCount = cipherData.length / keyBytes;
         byte[] plainWithLen = new byte[blockCount * maxPlainBlockLen];
 
-        int inPos = 0;
-        int outPos = 0;
-        int i = 0;
-
-        while (i < blockCount) {
-            byte[] cipherBlock = new byte[keyBytes];
-            System.arraycopy(cipherData, inPos, cipherBlock, 0, keyBytes);
-            inPos = inPos + keyBytes;
-
-            BigInteger c = new BigInteger(1, cipherBlock);
-            BigInteger m = numberTheoryService.modPow(c, d, n);
-
-            byte[] plainBlock = toFixedLengthBytes(m, maxPlainBlockLen);
-
-            System.arraycopy(plainBlock, 0, plainWithLen, outPos, maxPlainBlockLen);
-            outPos = outPos + maxPlainBlockLen;
-
-            i = i + 1;
-        }
+        transformBlocks(cipherData, keyBytes, plainWithLen, maxPlainBlockLen, blockCount, d, n, privateKey);
 
         if (plainWithLen.length < 8) {
             throw new IllegalStateException("Decrypted data length < 8 bytes");
@@ -234,6 +239,212 @@ public class RsaFileCryptoService implements AutoCloseable {
         return result;
     }
 
+    // Потоковое шифрование / расшифрование (память не зависит от размера файла)
+
+    public void encryptFileStreaming(Path input,
+                                     Path output,
+                                     BigInteger n,
+                                     BigInteger e) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null");
+        }
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            encryptStream(in, out, n, e);
+        }
+    }
+
+    public void decryptFileStreaming(Path input,
+                                     Path output,
+                                     BigInteger n,
+                                     BigInteger d) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null");
+        }
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            decryptStream(in, out, n, d);
+        }
+    }
+
+    public void decryptFileStreaming(Path input,
+                                     Path output,
+                                     RsaPrivateKey privateKey) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null");
+        }
+
+        checkPrivateKey(privateKey);
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            decryptStream(in, out, privateKey);
+        }
+    }
+
+    /**
+     * Каждый открытый блок: [2 байта заголовка][данные][нули]. Младшие 15 бит
+     * заголовка — длина данных в блоке, старший бит отмечает последний блок,
+     * поэтому длину входа заранее знать не нужно. Блоки обрабатываются пачками
+     * в переиспользуемых буферах.
+     */
+    public void encryptStream(ReadableByteChannel in,
+                              WritableByteChannel out,
+                              BigInteger n,
+                              BigInteger e) throws IOException {
+        if (in == null || out == null) {
+            throw new IllegalArgumentException("in/out must not be null");
+        }
+
+        if (n == null || e == null) {
+            throw new IllegalArgumentException("n/e must not be null");
+        }
+
+        int keyBytes = keyBytes(n);
+        int maxPlainBlockLen = maxPlainBlockLen(n);
+        int capacity = streamCapacity(maxPlainBlockLen);
+
+        int batchBlocks = STREAM_BLOCKS_PER_THREAD * parallelism;
+
+        byte[] data = new byte[batchBlocks * capacity];
+        byte[] plain = new byte[batchBlocks * maxPlainBlockLen];
+        byte[] cipher = new byte[batchBlocks * keyBytes];
+
+        boolean finished = false;
+
+        while (!finished) {
+            int dataLen = readFully(in, data);
+            finished = dataLen < data.length;
+
+            // Вход кончился ровно на границе пачки — признак конца в пустом блоке следующей
+            int blocks = (dataLen + capacity - 1) / capacity;
+            if (finished && blocks == 0) {
+                blocks = 1;
+            }
+
+            Arrays.fill(plain, 0, blocks * maxPlainBlockLen, (byte) 0);
+
+            int i = 0;
+            while (i < blocks) {
+                int dataOff = i * capacity;
+                int len = Math.min(capacity, dataLen - dataOff);
+                int plainOff = i * maxPlainBlockLen;
+
+                int header = len;
+                if (finished && i == blocks - 1) {
+                    header = header | FINAL_FLAG;
+                }
+
+                plain[plainOff] = (byte) (header >>> 8);
+                plain[plainOff + 1] = (byte) header;
+                System.arraycopy(data, dataOff, plain, plainOff + STREAM_HEADER_LEN, len);
+
+                i = i + 1;
+            }
+
+            transformBlocks(plain, maxPlainBlockLen, cipher, keyBytes, blocks, e, n, null);
+            writeFully(out, cipher, blocks * keyBytes);
+        }
+    }
+
+    public void decryptStream(ReadableByteChannel in,
+                              WritableByteChannel out,
+                              BigInteger n,
+                              BigInteger d) throws IOException {
+        if (n == null || d == null) {
+            throw new IllegalArgumentException("n/d must not be null");
+        }
+
+        decryptStream(in, out, new RsaPrivateKey(n, d));
+    }
+
+    public void decryptStream(ReadableByteChannel in,
+                              WritableByteChannel out,
+                              RsaPrivateKey privateKey) throws IOException {
+        if (in == null || out == null) {
+            throw new IllegalArgumentException("in/out must not be null");
+        }
+
+        checkPrivateKey(privateKey);
+
+        BigInteger n = privateKey.getModulus();
+        BigInteger d = privateKey.getExponent();
+
+        int keyBytes = keyBytes(n);
+        int maxPlainBlockLen = maxPlainBlockLen(n);
+        int capacity = streamCapacity(maxPlainBlockLen);
+
+        int batchBlocks = STREAM_BLOCKS_PER_THREAD * parallelism;
+
+        byte[] cipher = new byte[batchBlocks * keyBytes];
+        byte[] plain = new byte[batchBlocks * maxPlainBlockLen];
+
+        boolean finalSeen = false;
+
+        while (!finalSeen) {
+            int cipherLen = readFully(in, cipher);
+
+            if (cipherLen == 0) {
+                throw new IOException("Encrypted stream is truncated: final block is missing");
+            }
+
+            if (cipherLen % keyBytes != 0) {
+                throw new IOException("Encrypted stream length must be multiple of keyBytes");
+            }
+
+            int blocks = cipherLen / keyBytes;
+
+            transformBlocks(cipher, keyBytes, plain, maxPlainBlockLen, blocks, d, n, privateKey);
+
+            int i = 0;
+            while (i < blocks) {
+                if (finalSeen) {
+                    throw new IOException("Unexpected data after final block");
+                }
+
+                int plainOff = i * maxPlainBlockLen;
+                int header = ((plain[plainOff] & 0xFF) << 8) | (plain[plainOff + 1] & 0xFF);
+                int len = header & MAX_STREAM_DATA_LEN;
+
+                if (len > capacity) {
+                    throw new IOException("Invalid block data length: " + len);
+                }
+
+                writeFully(out, plain, plainOff + STREAM_HEADER_LEN, len);
+
+                finalSeen = (header & FINAL_FLAG) != 0;
+                i = i + 1;
+            }
+        }
+
+        if (readFully(in, cipher) != 0) {
+            throw new IOException("Unexpected data after final block");
+        }
+    }
+
     // Async-обёртки для файлов
 
     public Future<Void> encryptFileAsync(final Path input,
@@ -268,6 +479,162 @@ public class RsaFileCryptoService implements AutoCloseable {
 
     // Вспомогательные методы
 
+    private int keyBytes(BigInteger n) {
+        if (n.signum() <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+
+        return (n.bitLength() + 7) / 8;
+    }
+
+    private int maxPlainBlockLen(BigInteger n) {
+        int maxPlainBlockLen = (n.bitLength() - 1) / 8;
+
+        if (maxPlainBlockLen <= STREAM_HEADER_LEN) {
+            throw new IllegalArgumentException("n is too small for streaming format");
+        }
+
+        return maxPlainBlockLen;
+    }
+
+    private int streamCapacity(int maxPlainBlockLen) {
+        return Math.min(maxPlainBlockLen - STREAM_HEADER_LEN, MAX_STREAM_DATA_LEN);
+    }
+
+    // Читать, пока буфер не заполнен или вход не кончился; вернуть число прочитанных байт
+    private int readFully(ReadableByteChannel in, byte[] buffer) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buffer);
+
+        while (bb.hasRemaining()) {
+            if (in.read(bb) < 0) {
+                break;
+            }
+        }
+
+        return bb.position();
+    }
+
+    private void writeFully(WritableByteChannel out, byte[] buffer, int length) throws IOException {
+        writeFully(out, buffer, 0, length);
+    }
+
+    private void writeFully(WritableByteChannel out, byte[] buffer, int offset, int length) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buffer, offset, length);
+
+        while (bb.hasRemaining()) {
+            out.write(bb);
+        }
+    }
+
+    private void checkPrivateKey(RsaPrivateKey privateKey) {
+        if (privateKey == null) {
+            throw new IllegalArgumentException("privateKey must not be null");
+        }
+
+        if (privateKey.getModulus() == null || privateKey.getExponent() == null) {
+            throw new IllegalArgumentException("n/d must not be null");
+        }
+    }
+
+    /**
+     * Блоки независимы: out_i = (in_i)^exponent mod n. Диапазоны блоков делятся
+     * между задачами blockPool, каждая пишет свой отрезок out фиксированной длины.
+     * Если input короче blockCount * inBlockLen, недостающие байты считаются нулями.
+     * Если crtKey содержит параметры КТО, вместо modPow используется КТО.
+     */
+    private void transformBlocks(final byte[] input, final int inBlockLen,
+                                 final byte[] output, final int outBlockLen,
+                                 int blockCount,
+                                 final BigInteger exponent, final BigInteger n,
+                                 final RsaPrivateKey crtKey) {
+        if (parallelism == 1 || blockCount < 2) {
+            transformRange(input, inBlockLen, output, outBlockLen, 0, blockCount, exponent, n, crtKey);
+            return;
+        }
+
+        int tasks = Math.min(parallelism, blockCount);
+        int blocksPerTask = (blockCount + tasks - 1) / tasks;
+
+        List<Callable<Void>> rangeTasks = new ArrayList<>();
+
+        int start = 0;
+        while (start < blockCount) {
+            final int from = start;
+            final int to = Math.min(blockCount, from + blocksPerTask);
+
+            rangeTasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    transformRange(input, inBlockLen, output, outBlockLen, from, to, exponent, n, crtKey);
+                    return null;
+                }
+            });
+
+            start = to;
+        }
+
+        List<Future<Void>> futures = blockPool.invokeAll(rangeTasks);
+
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("RSA block task interrupted", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+
+                throw new IllegalStateException("RSA block task failed", cause);
+            }
+        }
+    }
+
+    private void transformRange(byte[] input, int inBlockLen,
+                                byte[] output, int outBlockLen,
+                                int from, int to,
+                                BigInteger exponent, BigInteger n,
+                                RsaPrivateKey crtKey) {
+        byte[] block = new byte[inBlockLen];
+
+        boolean useCrt = crtKey != null && crtKey.hasCrtParameters();
+
+        int i = from;
+        while (i < to) {
+            int inPos = i * inBlockLen;
+            int available = Math.min(inBlockLen, input.length - inPos);
+
+            BigInteger value;
+
+            if (available == inBlockLen) {
+                value = new BigInteger(1, input, inPos, inBlockLen);
+            } else {
+                Arrays.fill(block, (byte) 0);
+                System.arraycopy(input, inPos, block, 0, available);
+                value = new BigInteger(1, block);
+            }
+
+            BigInteger result;
+
+            if (useCrt) {
+                if (value.compareTo(n) >= 0) {
+                    throw new IllegalArgumentException("Cipher block must be in [0, n)");
+                }
+
+                result = RsaCrt.decrypt(numberTheoryService, value, crtKey);
+            } else {
+                result = numberTheoryService.modPow(value, exponent, n);
+            }
+
+            toFixedLengthBytes(result, output, i * outBlockLen, outBlockLen);
+
+            i = i + 1;
+        }
+    }
+
     private void writeLongBigEndian(byte[] arr, int offset, long value) {
         arr[offset]     = (byte) (value >>> 56);
         arr[offset + 1] = (byte) (value >>> 48);
@@ -302,39 +669,44 @@ public class RsaFileCryptoService implements AutoCloseable {
         return value;
     }
 
-    private byte[] toFixedLengthBytes(BigInteger value, int length) {
+    /**
+     * Записать value в out[offset, offset + length) big-endian с ведущими нулями.
+     */
+    private void toFixedLengthBytes(BigInteger value, byte[] out, int offset, int length) {
         if (value.signum() < 0) {
             throw new IllegalArgumentException("value must be non-negative");
         }
 
         byte[] tmp = value.toByteArray();
 
-        // Убираем возможный лишний ведущий байт знака
+        // Пропускаем возможный лишний ведущий байт знака
+        int start = 0;
         if (tmp.length > 1 && tmp[0] == 0) {
-            byte[] noSign = new byte[tmp.length - 1];
-            System.arraycopy(tmp, 1, noSign, 0, noSign.length);
-            tmp = noSign;
+            start = 1;
         }
 
-        if (tmp.length > length) {
+        int valueLen = tmp.length - start;
+
+        if (valueLen > length) {
             throw new IllegalArgumentException(
-                    "value does not fit in " + length + " bytes (got " + tmp.length + ")"
+                    "value does not fit in " + length + " bytes (got " + valueLen + ")"
             );
         }
 
-        if (tmp.length == length) {
-            return tmp;
-        }
+        int pad = length - valueLen;
 
-        byte[] result = new byte[length];
-        int offset = length - tmp.length;
-        System.arraycopy(tmp, 0, result, offset, tmp.length);
+        int i = 0;
+        while (i < pad) {
+            out[offset + i] = 0;
+            i = i + 1;
+        }
 
-        return result;
+        System.arraycopy(tmp, start, out, offset + pad, valueLen);
     }
 
     @Override
     public void close() {
         executor.shutdown();
+        blockPool.shutdown();
     }
 }
@@ -0,0 +1,267 @@
+package com.pavel.crypto.rsa;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченный пул заранее сгенерированных ключевых пар RSA.
+ *
+ * Фоновые потоки заполняют пул до capacity при создании и снова — как только
+ * после выдачи в нём остаётся не больше lowWaterMark пар. Выдача готовой пары
+ * занимает микросекунды; если пул пуст, take() ждёт следующую пару.
+ *
+ * Ошибка генерации не останавливает фоновый поток: она запоминается
+ * (getLastFailure, getFailureCount), и после паузы генерация повторяется.
+ */
+public class RsaKeyPool implements AutoCloseable {
+
+    // Пауза после ошибки генерации, чтобы постоянная ошибка не загружала потоки
+    private static final long FAILURE_BACKOFF_MILLIS = 100;
+
+    // Как часто ожидающий take()/poll() проверяет, не закрыт ли пул
+    private static final long CLOSE_CHECK_MILLIS = 100;
+
+    private final RsaService.KeyGenerator generator;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final int workerCount;
+
+    private final BlockingQueue<RsaKeyPair> pairs;
+    private final ExecutorService workers;
+
+    private final Object refillLock = new Object();
+    private boolean refilling;
+    private volatile boolean closed;
+
+    // Пары, которые сейчас генерируются (чтобы не переполнить пул); под refillLock
+    private int inProgress;
+
+    private final AtomicLong generatedCount = new AtomicLong();
+    private final AtomicLong generationNanos = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private volatile RuntimeException lastFailure;
+
+    public RsaKeyPool(RsaService.KeyGenerator generator,
+                      int capacity,
+                      int lowWaterMark,
+                      int workerCount) {
+        if (generator == null) {
+            throw new IllegalArgumentException("generator must not be null");
+        }
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+
+        if (lowWaterMark < 0 || lowWaterMark >= capacity) {
+            throw new IllegalArgumentException("lowWaterMark must be in [0, capacity)");
+        }
+
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be >= 1");
+        }
+
+        this.generator = generator;
+        this.capacity = capacity;
+        this.lowWaterMark = lowWaterMark;
+        this.workerCount = workerCount;
+        this.pairs = new ArrayBlockingQueue<>(capacity);
+        this.workers = Executors.newFixedThreadPool(workerCount);
+
+        // Начальное заполнение
+        this.refilling = true;
+
+        int i = 0;
+        while (i < workerCount) {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    refillLoop();
+                }
+            });
+            i = i + 1;
+        }
+    }
+
+    /**
+     * Взять пару, при пустом пуле — дождаться сгенерированной.
+     * Если пул закрывается во время ожидания — IllegalStateException.
+     */
+    public RsaKeyPair take() throws InterruptedException {
+        RsaKeyPair pair = null;
+
+        while (pair == null) {
+            ensureOpen();
+            pair = pairs.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        afterTake();
+
+        return pair;
+    }
+
+    /**
+     * Взять пару, ожидая не дольше timeout; null, если пара не появилась.
+     * Если пул закрывается во время ожидания — IllegalStateException.
+     */
+    public RsaKeyPair poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long slice = TimeUnit.MILLISECONDS.toNanos(CLOSE_CHECK_MILLIS);
+
+        RsaKeyPair pair = null;
+
+        while (pair == null) {
+            ensureOpen();
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+
+            pair = pairs.poll(Math.min(remaining, slice), TimeUnit.NANOSECONDS);
+        }
+
+        afterTake();
+
+        return pair;
+    }
+
+    public int size() {
+        return pairs.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getLowWaterMark() {
+        return lowWaterMark;
+    }
+
+    // Заполненность пула от 0.0 до 1.0
+    public double getFillLevel() {
+        return (double) pairs.size() / (double) capacity;
+    }
+
+    public long getGeneratedCount() {
+        return generatedCount.get();
+    }
+
+    // Число неудачных попыток генерации
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Последняя ошибка генерации или null, если ошибок не было.
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Скорость пополнения в парах в секунду при работе всех фоновых потоков
+     * (по среднему времени генерации одной пары); 0, пока ни одной пары нет.
+     */
+    public double getGenerationRate() {
+        long count = generatedCount.get();
+        long nanos = generationNanos.get();
+
+        if (count == 0 || nanos == 0) {
+            return 0.0;
+        }
+
+        double secondsPerPair = (double) nanos / (double) count / 1_000_000_000.0;
+
+        return workerCount / secondsPerPair;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        synchronized (refillLock) {
+            refillLock.notifyAll();
+        }
+
+        workers.shutdownNow();
+    }
+
+    private void afterTake() {
+        synchronized (refillLock) {
+            if (pairs.size() <= lowWaterMark) {
+                refilling = true;
+            }
+
+            // Освободилось место — ожидающие потоки могут продолжить
+            refillLock.notifyAll();
+        }
+    }
+
+    private void refillLoop() {
+        while (!closed) {
+            synchronized (refillLock) {
+                while (!closed && !(refilling && pairs.size() + inProgress < capacity)) {
+                    try {
+                        refillLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+
+                if (closed) {
+                    return;
+                }
+
+                // Резервируем место под пару, которую будем генерировать
+                inProgress = inProgress + 1;
+            }
+
+            boolean failed = false;
+
+            try {
+                long start = System.nanoTime();
+                RsaKeyPair pair = generator.generateKeyPair();
+                long elapsed = System.nanoTime() - start;
+
+                generationNanos.addAndGet(elapsed);
+                generatedCount.incrementAndGet();
+
+                pairs.offer(pair);
+            } catch (RuntimeException e) {
+                lastFailure = e;
+                failureCount.incrementAndGet();
+                failed = true;
+            } finally {
+                synchronized (refillLock) {
+                    inProgress = inProgress - 1;
+
+                    if (pairs.size() >= capacity) {
+                        refilling = false;
+                    }
+
+                    refillLock.notifyAll();
+                }
+            }
+
+            if (failed) {
+                try {
+                    Thread.sleep(FAILURE_BACKOFF_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("RsaKeyPool is closed");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.pavel.crypto.rsa;
+
+import java.math.BigInteger;
+
+/**
+ * Дополнительный простой множитель многопростого RSA (PKCS#1 OtherPrimeInfo):
+ * r_i, d_i = d mod (r_i - 1), t_i = (r_1 * ... * r_(i-1))^(-1) mod r_i.
+ */
+public class RsaOtherPrimeInfo {
+
+    private final BigInteger prime;
+    private final BigInteger exponent;
+    private final BigInteger coefficient;
+
+    public RsaOtherPrimeInfo(BigInteger prime, BigInteger exponent, BigInteger coefficient) {
+        if (prime == null || exponent == null || coefficient == null) {
+            throw new IllegalArgumentException("prime/exponent/coefficient must not be null");
+        }
+
+        this.prime = prime;
+        this.exponent = exponent;
+        this.coefficient = coefficient;
+    }
+
+    public BigInteger getPrime() {
+        return prime;
+    }
+
+    public BigInteger getExponent() {
+        return exponent;
+    }
+
+    public BigInteger getCoefficient() {
+        return coefficient;
+    }
+}
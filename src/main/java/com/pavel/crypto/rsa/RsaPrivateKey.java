@@ -1,15 +1,76 @@
 package com.pavel.crypto.rsa;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class RsaPrivateKey {
 
     private final BigInteger modulus;
     private final BigInteger exponent;
 
+    // Параметры для КТО (PKCS#1): null, если ключ задан только (n, d)
+    private final BigInteger primeP;
+    private final BigInteger primeQ;
+    private final BigInteger primeExponentP;
+    private final BigInteger primeExponentQ;
+    private final BigInteger crtCoefficient;
+
+    // Простые r_3, r_4, ... многопростого ключа; пустой список для обычного ключа
+    private final List<RsaOtherPrimeInfo> otherPrimes;
+
     public RsaPrivateKey(BigInteger modulus, BigInteger exponent) {
         this.modulus = modulus;
         this.exponent = exponent;
+        this.primeP = null;
+        this.primeQ = null;
+        this.primeExponentP = null;
+        this.primeExponentQ = null;
+        this.crtCoefficient = null;
+        this.otherPrimes = Collections.emptyList();
+    }
+
+    /**
+     * dP = d mod (p - 1), dQ = d mod (q - 1), qInv = q^(-1) mod p.
+     */
+    public RsaPrivateKey(BigInteger modulus,
+                         BigInteger exponent,
+                         BigInteger primeP,
+                         BigInteger primeQ,
+                         BigInteger primeExponentP,
+                         BigInteger primeExponentQ,
+                         BigInteger crtCoefficient) {
+        this(modulus, exponent, primeP, primeQ, primeExponentP, primeExponentQ, crtCoefficient,
+                Collections.<RsaOtherPrimeInfo>emptyList());
+    }
+
+    public RsaPrivateKey(BigInteger modulus,
+                         BigInteger exponent,
+                         BigInteger primeP,
+                         BigInteger primeQ,
+                         BigInteger primeExponentP,
+                         BigInteger primeExponentQ,
+                         BigInteger crtCoefficient,
+                         List<RsaOtherPrimeInfo> otherPrimes) {
+        if (otherPrimes == null) {
+            throw new IllegalArgumentException("otherPrimes must not be null");
+        }
+
+        if (primeP == null || primeQ == null
+                || primeExponentP == null || primeExponentQ == null
+                || crtCoefficient == null) {
+            throw new IllegalArgumentException("CRT parameters must not be null");
+        }
+
+        this.modulus = modulus;
+        this.exponent = exponent;
+        this.primeP = primeP;
+        this.primeQ = primeQ;
+        this.primeExponentP = primeExponentP;
+        this.primeExponentQ = primeExponentQ;
+        this.crtCoefficient = crtCoefficient;
+        this.otherPrimes = Collections.unmodifiableList(new ArrayList<>(otherPrimes));
     }
 
     public BigInteger getModulus() {
@@ -19,4 +80,37 @@ public class RsaPrivateKey {
     public BigInteger getExponent() {
         return exponent;
     }
+
+    public boolean hasCrtParameters() {
+        return primeP != null;
+    }
+
+    public BigInteger getPrimeP() {
+        return primeP;
+    }
+
+    public BigInteger getPrimeQ() {
+        return primeQ;
+    }
+
+    public BigInteger getPrimeExponentP() {
+        return primeExponentP;
+    }
+
+    public BigInteger getPrimeExponentQ() {
+        return primeExponentQ;
+    }
+
+    public BigInteger getCrtCoefficient() {
+        return crtCoefficient;
+    }
+
+    public List<RsaOtherPrimeInfo> getOtherPrimes() {
+        return otherPrimes;
+    }
+
+    // Число простых множителей модуля (2 для обычного ключа)
+    public int getPrimeCount() {
+        return 2 + otherPrimes.size();
+    }
 }
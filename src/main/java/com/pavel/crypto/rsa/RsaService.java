@@ -2,27 +2,42 @@ package com.pavel.crypto.rsa;
 
 import com.pavel.crypto.math.ExtendedGcdResult;
 import com.pavel.crypto.math.NumberTheoryService;
+import com.pavel.crypto.primality.BailliePswPrimalityTest;
 import com.pavel.crypto.primality.FermatPrimalityTest;
+import com.pavel.crypto.primality.IncrementalSieve;
 import com.pavel.crypto.primality.MillerRabinPrimalityTest;
 import com.pavel.crypto.primality.ProbabilisticPrimalityTest;
 import com.pavel.crypto.primality.SolovayStrassenPrimalityTest;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 public class RsaService {
 
     public enum PrimalityTestType {
         FERMAT,
         SOLOVAY_STRASSEN,
-        MILLER_RABIN
+        MILLER_RABIN,
+        BAILLIE_PSW
     }
 
     public static class KeyGenerator {
 
+        public static final int MIN_PRIME_COUNT = 2;
+        public static final int MAX_PRIME_COUNT = 4;
+
         private final ProbabilisticPrimalityTest primalityTest;
         private final double minProbability;
-        private final int bitLength;
+        private final int primeCount;
+        private final int primeBitLength;
+        private final int[] primeBitLengths;
+        private final int modulusBitLength;
         private final NumberTheoryService numberTheory;
         private final SecureRandom random;
 
@@ -30,12 +45,29 @@ public class RsaService {
                             double minProbability,
                             int bitLength,
                             NumberTheoryService numberTheory) {
+            this(testType, minProbability, bitLength, numberTheory, MIN_PRIME_COUNT);
+        }
+
+        /**
+         * bitLength — длина простого для двухпростого ключа (модуль ровно 2 * bitLength бит).
+         * При primeCount простых модуль той же длины: длины простых в сумме дают
+         * 2 * bitLength (например, 683 + 683 + 682 при bitLength = 1024).
+         */
+        public KeyGenerator(PrimalityTestType testType,
+                            double minProbability,
+                            int bitLength,
+                            NumberTheoryService numberTheory,
+                            int primeCount) {
+
+            if (primeCount < MIN_PRIME_COUNT || primeCount > MAX_PRIME_COUNT) {
+                throw new IllegalArgumentException("primeCount must be in [2, 4]");
+            }
 
             if (minProbability < 0.5 || minProbability >= 1.0) {
                 throw new IllegalArgumentException("minProbability must be in [0.5, 1)");
             }
 
-            if (bitLength < 16) {
+            if (bitLength < 16 || 2 * bitLength / primeCount < 16) {
                 throw new IllegalArgumentException("bitLength is too small");
             }
 
@@ -44,7 +76,17 @@ public class RsaService {
             }
 
             this.minProbability = minProbability;
-            this.bitLength = bitLength;
+            this.primeCount = primeCount;
+            this.modulusBitLength = 2 * bitLength;
+            this.primeBitLength = modulusBitLength / primeCount;
+            this.primeBitLengths = new int[primeCount];
+
+            // Остаток деления распределяется по одному биту на первые простые
+            int i = 0;
+            while (i < primeCount) {
+                primeBitLengths[i] = primeBitLength + (i < modulusBitLength % primeCount ? 1 : 0);
+                i = i + 1;
+            }
             this.numberTheory = numberTheory;
             this.random = new SecureRandom();
             this.primalityTest = createTest(testType, numberTheory);
@@ -64,20 +106,57 @@ public class RsaService {
                 return new MillerRabinPrimalityTest(numberTheory);
             }
 
+            if (type == PrimalityTestType.BAILLIE_PSW) {
+                return new BailliePswPrimalityTest(numberTheory);
+            }
+
             throw new IllegalArgumentException("Unsupported primality test type: " + type);
         }
 
         public RsaKeyPair generateKeyPair() {
+            return generateKeyPair(null, 1);
+        }
+
+        /**
+         * Параллельная генерация: все простые ключа ищутся одновременно, и для каждого
+         * в executor запускается streamsPerPrime независимых цепочек кандидатов —
+         * берётся первое найденное простое, остальные цепочки останавливаются.
+         * При executor == null поиск последовательный в текущем потоке.
+         */
+        public RsaKeyPair generateKeyPair(ExecutorService executor, int streamsPerPrime) {
+            if (streamsPerPrime <= 0) {
+                throw new IllegalArgumentException("streamsPerPrime must be >= 1");
+            }
+
             boolean generated = false;
 
             RsaKeyPair pair = null;
 
             while (!generated) {
-                BigInteger p = generatePrime();
-                BigInteger q = generatePrimeDifferentFrom(p);
+                List<BigInteger> primes;
 
-                BigInteger n = p.multiply(q);
-                BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+                if (executor == null) {
+                    primes = generateDistinctPrimes();
+                } else {
+                    primes = generateDistinctPrimesParallel(executor, streamsPerPrime);
+                }
+
+                if (primes == null) {
+                    continue;
+                }
+
+                BigInteger n = BigInteger.ONE;
+                BigInteger phi = BigInteger.ONE;
+
+                for (BigInteger prime : primes) {
+                    n = n.multiply(prime);
+                    phi = phi.multiply(prime.subtract(BigInteger.ONE));
+                }
+
+                // При трёх и более простых старших бит кандидатов не хватает для точной длины
+                if (n.bitLength() != modulusBitLength) {
+                    continue;
+                }
 
                 BigInteger e = BigInteger.valueOf(65537L);
 
@@ -97,7 +176,7 @@ public class RsaService {
                     d = d.add(phi);
                 }
 
-                if (!isFermatSafe(p, q)) {
+                if (!isFermatSafe(primes)) {
                     continue;
                 }
 
@@ -105,8 +184,12 @@ public class RsaService {
                     continue;
                 }
 
+                if (!areCrtExponentsSafe(primes, d)) {
+                    continue;
+                }
+
                 RsaPublicKey publicKey = new RsaPublicKey(n, e);
-                RsaPrivateKey privateKey = new RsaPrivateKey(n, d);
+                RsaPrivateKey privateKey = buildPrivateKey(n, d, primes);
 
                 pair = new RsaKeyPair(publicKey, privateKey);
                 generated = true;
@@ -115,20 +198,147 @@ public class RsaService {
             return pair;
         }
 
-        private BigInteger generatePrime() {
-            BigInteger candidate = randomOddWithBitLength(bitLength);
+        /**
+         * Параметры КТО: dP, dQ, qInv = q^(-1) mod p и для r_3, r_4 —
+         * d_i и t_i = (r_1 * ... * r_(i-1))^(-1) mod r_i.
+         */
+        private RsaPrivateKey buildPrivateKey(BigInteger n, BigInteger d, List<BigInteger> primes) {
+            BigInteger p = primes.get(0);
+            BigInteger q = primes.get(1);
 
-            boolean prime = false;
+            BigInteger dP = d.mod(p.subtract(BigInteger.ONE));
+            BigInteger dQ = d.mod(q.subtract(BigInteger.ONE));
+            BigInteger qInv = numberTheory.extendedGcd(q, p).getX().mod(p);
 
-            while (!prime) {
-                if (primalityTest.isProbablyPrime(candidate, minProbability)) {
-                    prime = true;
-                } else {
-                    candidate = candidate.add(BigInteger.TWO);
+            List<RsaOtherPrimeInfo> otherPrimes = new ArrayList<>();
+            BigInteger product = p.multiply(q);
+
+            int i = 2;
+            while (i < primes.size()) {
+                BigInteger r = primes.get(i);
+
+                BigInteger di = d.mod(r.subtract(BigInteger.ONE));
+                BigInteger ti = numberTheory.extendedGcd(product.mod(r), r).getX().mod(r);
+
+                otherPrimes.add(new RsaOtherPrimeInfo(r, di, ti));
+
+                product = product.multiply(r);
+                i = i + 1;
+            }
+
+            return new RsaPrivateKey(n, d, p, q, dP, dQ, qInv, otherPrimes);
+        }
+
+        private List<BigInteger> generateDistinctPrimes() {
+            List<BigInteger> primes = new ArrayList<>();
+
+            while (primes.size() < primeCount) {
+                BigInteger candidate = generatePrime(primeBitLengths[primes.size()]);
+
+                if (!primes.contains(candidate)) {
+                    primes.add(candidate);
+                }
+            }
+
+            return primes;
+        }
+
+        /**
+         * Все простые ищутся одновременно; null, если два слота нашли одно и то же простое.
+         */
+        private List<BigInteger> generateDistinctPrimesParallel(ExecutorService executor, int streamsPerPrime) {
+            List<CompletableFuture<BigInteger>> slots = new ArrayList<>();
+
+            int i = 0;
+            while (i < primeCount) {
+                final CompletableFuture<BigInteger> slot = new CompletableFuture<>();
+                final int bits = primeBitLengths[i];
+                slots.add(slot);
+
+                int s = 0;
+                while (s < streamsPerPrime) {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                BigInteger prime = searchPrime(bits, slot);
+
+                                if (prime != null) {
+                                    slot.complete(prime);
+                                }
+                            } catch (RuntimeException e) {
+                                slot.completeExceptionally(e);
+                            }
+                        }
+                    });
+
+                    s = s + 1;
+                }
+
+                i = i + 1;
+            }
+
+            List<BigInteger> primes = new ArrayList<>();
+
+            for (CompletableFuture<BigInteger> slot : slots) {
+                BigInteger prime;
+
+                try {
+                    prime = slot.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    // Останавливаем оставшиеся цепочки
+                    for (CompletableFuture<BigInteger> other : slots) {
+                        other.cancel(false);
+                    }
+
+                    throw new IllegalStateException("Prime search interrupted", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Prime search failed", e.getCause());
+                }
+
+                if (primes.contains(prime)) {
+                    return null;
+                }
+
+                primes.add(prime);
+            }
+
+            return primes;
+        }
+
+        private BigInteger generatePrime(int bits) {
+            return searchPrime(bits, null);
+        }
+
+        /**
+         * Перебор нечётных кандидатов от случайной стартовой точки; кандидаты
+         * с малыми делителями отсеиваются решетом до вероятностного теста.
+         * Возвращает null, если слот stop уже заполнен другой цепочкой.
+         */
+        private BigInteger searchPrime(int bits, CompletableFuture<BigInteger> stop) {
+            IncrementalSieve sieve = new IncrementalSieve(randomOddWithBitLength(bits));
+
+            while (stop == null || !stop.isDone()) {
+                BigInteger candidate = sieve.next();
+
+                if (isProbablePrime(candidate)) {
+                    return candidate;
                 }
             }
 
-            return candidate;
+            return null;
+        }
+
+        // Кандидаты случайные, поэтому Миллеру–Рабину хватает раундов по таблице для случайных чисел
+        private boolean isProbablePrime(BigInteger candidate) {
+            if (primalityTest instanceof MillerRabinPrimalityTest) {
+                return ((MillerRabinPrimalityTest) primalityTest)
+                        .isProbablePrimeRandomCandidate(candidate, minProbability);
+            }
+
+            return primalityTest.isProbablyPrime(candidate, minProbability);
         }
 
         private BigInteger randomOddWithBitLength(int bits) {
@@ -137,7 +347,9 @@ public class RsaService {
 
             while (!ok) {
                 BigInteger candidate = new BigInteger(bits, random);
-                candidate = candidate.setBit(bits - 1);
+
+                // Два старших бита: произведение двух таких простых имеет полную длину
+                candidate = candidate.setBit(bits - 1).setBit(bits - 2);
 
                 if (!candidate.testBit(0)) {
                     candidate = candidate.add(BigInteger.ONE);
@@ -150,26 +362,27 @@ public class RsaService {
             return value;
         }
 
-        private BigInteger generatePrimeDifferentFrom(BigInteger p) {
-            BigInteger q = generatePrime();
+        /**
+         * Защита от факторизации Ферма: любые два простых должны отличаться
+         * больше чем на половину своей длины в битах.
+         */
+        private boolean isFermatSafe(List<BigInteger> primes) {
+            int target = primeBitLength / 2;
 
-            boolean equal = q.equals(p);
+            int i = 0;
+            while (i < primes.size()) {
+                int j = i + 1;
+                while (j < primes.size()) {
+                    BigInteger diff = primes.get(i).subtract(primes.get(j)).abs();
 
-            while (equal) {
-                q = generatePrime();
-                equal = q.equals(p);
-            }
+                    if (diff.bitLength() <= target) {
+                        return false;
+                    }
 
-            return q;
-        }
-
-        private boolean isFermatSafe(BigInteger p, BigInteger q) {
-            BigInteger diff = p.subtract(q).abs();
-            int diffBits = diff.bitLength();
-            int target = bitLength / 2;
+                    j = j + 1;
+                }
 
-            if (diffBits <= target) {
-                return false;
+                i = i + 1;
             }
 
             return true;
@@ -185,27 +398,75 @@ public class RsaService {
 
             return true;
         }
+
+        /**
+         * Короткие показатели d mod (r_i - 1) позволяют найти r_i перебором,
+         * поэтому каждый из них должен быть длиннее половины длины простого.
+         */
+        private boolean areCrtExponentsSafe(List<BigInteger> primes, BigInteger d) {
+            int minBits = primeBitLength / 2 + 1;
+
+            for (BigInteger prime : primes) {
+                BigInteger exponent = d.mod(prime.subtract(BigInteger.ONE));
+
+                if (exponent.bitLength() < minBits) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
     }
 
     private final NumberTheoryService numberTheory;
     private final KeyGenerator keyGenerator;
 
+    // Считать две половины КТО в разных потоках
+    private final boolean parallelCrt;
+
     public RsaService(PrimalityTestType testType,
                       double minPrimeProbability,
                       int bitLength,
                       NumberTheoryService numberTheory) {
+        this(testType, minPrimeProbability, bitLength, numberTheory, false);
+    }
+
+    public RsaService(PrimalityTestType testType,
+                      double minPrimeProbability,
+                      int bitLength,
+                      NumberTheoryService numberTheory,
+                      boolean parallelCrt) {
+        this(testType, minPrimeProbability, bitLength, numberTheory, KeyGenerator.MIN_PRIME_COUNT, parallelCrt);
+    }
+
+    // primeCount от 2 до 4: многопростой RSA, КТО по всем простым множителям
+    public RsaService(PrimalityTestType testType,
+                      double minPrimeProbability,
+                      int bitLength,
+                      NumberTheoryService numberTheory,
+                      int primeCount,
+                      boolean parallelCrt) {
         if (numberTheory == null) {
             throw new IllegalArgumentException("NumberTheoryService must not be null");
         }
 
         this.numberTheory = numberTheory;
-        this.keyGenerator = new KeyGenerator(testType, minPrimeProbability, bitLength, numberTheory);
+        this.keyGenerator = new KeyGenerator(testType, minPrimeProbability, bitLength, numberTheory, primeCount);
+        this.parallelCrt = parallelCrt;
     }
 
     public RsaKeyPair generateNewKeyPair() {
         return keyGenerator.generateKeyPair();
     }
 
+    public RsaKeyPair generateNewKeyPair(ExecutorService executor, int streamsPerPrime) {
+        return keyGenerator.generateKeyPair(executor, streamsPerPrime);
+    }
+
+    public KeyGenerator getKeyGenerator() {
+        return keyGenerator;
+    }
+
     public BigInteger encrypt(BigInteger message, RsaPublicKey key) {
         if (message == null || key == null) {
             throw new IllegalArgumentException("Arguments must not be null");
@@ -233,6 +494,15 @@ public class RsaService {
             throw new IllegalArgumentException("Ciphertext must be in [0, n)");
         }
 
+        // С параметрами КТО — два возведения в степень половинной длины
+        if (key.hasCrtParameters()) {
+            if (parallelCrt) {
+                return RsaCrt.decryptParallel(numberTheory, ciphertext, key, ForkJoinPool.commonPool());
+            }
+
+            return RsaCrt.decrypt(numberTheory, ciphertext, key);
+        }
+
         return numberTheory.modPow(ciphertext, d, n);
     }
 }
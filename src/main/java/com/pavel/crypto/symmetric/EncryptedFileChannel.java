@@ -0,0 +1,311 @@
+package com.pavel.crypto.symmetric;
+
+import com.pavel.crypto.core.BlockCipher;
+import com.pavel.crypto.core.Padding;
+import com.pavel.crypto.core.SeekableCipherMode;
+import com.pavel.crypto.modes.CtrMode;
+import com.pavel.crypto.padding.NoPadding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Канал только для чтения над файлом, зашифрованным в режиме CTR или RandomDelta
+ * (как его пишет SymmetricCryptoService.encryptFile или StreamMode с CTR).
+ *
+ * Файл расшифровывается страницами по мере чтения: для первого блока страницы
+ * режим сразу переводится в нужное состояние через seek, расшифрованные страницы
+ * хранятся в LRU-кэше ограниченного размера. Размер канала — длина открытого
+ * текста (паддинг последнего блока снимается при открытии).
+ */
+public class EncryptedFileChannel implements SeekableByteChannel {
+
+    public static final int DEFAULT_PAGE_BLOCKS = 256;
+    public static final int DEFAULT_MAX_PAGES = 64;
+
+    private final FileChannel file;
+    private final SeekableCipherMode mode;
+    private final int blockSize;
+    private final int pageSize;
+    private final long cipherSize;
+    private final long plainSize;
+    private final Map<Long, byte[]> pageCache;
+
+    private long position;
+    private boolean open;
+
+    public EncryptedFileChannel(Path path,
+                                BlockCipher cipher,
+                                SeekableCipherMode mode,
+                                Padding padding,
+                                byte[] key,
+                                byte[] iv) throws IOException {
+        this(path, cipher, mode, padding, key, iv, DEFAULT_PAGE_BLOCKS, DEFAULT_MAX_PAGES);
+    }
+
+    public EncryptedFileChannel(Path path,
+                                BlockCipher cipher,
+                                SeekableCipherMode mode,
+                                Padding padding,
+                                byte[] key,
+                                byte[] iv,
+                                int pageBlocks,
+                                final int maxPages) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+
+        if (cipher == null) {
+            throw new IllegalArgumentException("cipher must not be null");
+        }
+
+        if (mode == null) {
+            throw new IllegalArgumentException("mode must not be null");
+        }
+
+        if (padding == null) {
+            throw new IllegalArgumentException("padding must not be null");
+        }
+
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+
+        if (pageBlocks <= 0) {
+            throw new IllegalArgumentException("pageBlocks must be >= 1");
+        }
+
+        if (maxPages <= 0) {
+            throw new IllegalArgumentException("maxPages must be >= 1");
+        }
+
+        cipher.init(false, key);
+        mode.init(false, cipher, iv);
+
+        this.mode = mode;
+        this.blockSize = cipher.getBlockSize();
+        this.pageSize = pageBlocks * blockSize;
+
+        // accessOrder = true: при переполнении вытесняется давно не читавшаяся страница
+        this.pageCache = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > maxPages;
+            }
+        };
+
+        this.file = FileChannel.open(path, StandardOpenOption.READ);
+        this.open = true;
+
+        try {
+            this.cipherSize = file.size();
+            this.plainSize = computePlainSize(padding);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        int n = read(dst, position);
+
+        if (n > 0) {
+            position = position + n;
+        }
+
+        return n;
+    }
+
+    /**
+     * Чтение с указанной позиции открытого текста; position() канала не меняется.
+     */
+    public synchronized int read(ByteBuffer dst, long readPosition) throws IOException {
+        ensureOpen();
+
+        if (dst == null) {
+            throw new IllegalArgumentException("dst must not be null");
+        }
+
+        if (readPosition < 0) {
+            throw new IllegalArgumentException("position must be >= 0");
+        }
+
+        if (readPosition >= plainSize) {
+            return -1;
+        }
+
+        int total = 0;
+        long pos = readPosition;
+
+        while (dst.hasRemaining() && pos < plainSize) {
+            long pageIndex = pos / pageSize;
+            int pageOff = (int) (pos % pageSize);
+
+            byte[] page = getPage(pageIndex);
+
+            long pageStart = pageIndex * pageSize;
+            int pageAvail = (int) Math.min((long) pageSize, plainSize - pageStart) - pageOff;
+            int chunk = Math.min(pageAvail, dst.remaining());
+
+            dst.put(page, pageOff, chunk);
+
+            pos = pos + chunk;
+            total = total + chunk;
+        }
+
+        return total;
+    }
+
+    /**
+     * Расшифрованный отрезок [position, position + length) как буфер только для чтения.
+     */
+    public synchronized ByteBuffer map(long mapPosition, int length) throws IOException {
+        ensureOpen();
+
+        if (mapPosition < 0 || length < 0 || mapPosition + length > plainSize) {
+            throw new IllegalArgumentException("Invalid position/length for map");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        while (buffer.hasRemaining()) {
+            read(buffer, mapPosition + buffer.position());
+        }
+
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("position must be >= 0");
+        }
+
+        this.position = newPosition;
+        return this;
+    }
+
+    @Override
+    public synchronized long size() throws IOException {
+        ensureOpen();
+        return plainSize;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!open) {
+            return;
+        }
+
+        open = false;
+        pageCache.clear();
+        file.close();
+    }
+
+    private long computePlainSize(Padding padding) throws IOException {
+        long tail = cipherSize % blockSize;
+
+        if (padding instanceof NoPadding) {
+            // Неполный последний блок возможен только у гаммы CTR (файлы StreamMode)
+            if (tail != 0 && !(mode instanceof CtrMode)) {
+                throw new IOException("Encrypted file length is not a multiple of block size");
+            }
+
+            return cipherSize;
+        }
+
+        if (tail != 0 || cipherSize == 0) {
+            throw new IOException("Encrypted file length is not a multiple of block size");
+        }
+
+        long lastBlockStart = cipherSize - blockSize;
+
+        byte[] page = getPage(lastBlockStart / pageSize);
+
+        byte[] lastBlock = new byte[blockSize];
+        System.arraycopy(page, (int) (lastBlockStart % pageSize), lastBlock, 0, blockSize);
+
+        int dataInLastBlock = padding.removePadding(lastBlock, 0, blockSize);
+
+        if (dataInLastBlock < 0 || dataInLastBlock > blockSize) {
+            throw new IllegalStateException("Invalid dataInLastBlock value: " + dataInLastBlock);
+        }
+
+        return lastBlockStart + dataInLastBlock;
+    }
+
+    private byte[] getPage(long pageIndex) throws IOException {
+        byte[] page = pageCache.get(pageIndex);
+
+        if (page == null) {
+            page = decryptPage(pageIndex);
+            pageCache.put(pageIndex, page);
+        }
+
+        return page;
+    }
+
+    /**
+     * Прочитать и расшифровать страницу; хвост за концом файла остаётся нулевым.
+     */
+    private byte[] decryptPage(long pageIndex) throws IOException {
+        long pageStart = pageIndex * pageSize;
+        int available = (int) Math.min((long) pageSize, cipherSize - pageStart);
+        int blocks = (available + blockSize - 1) / blockSize;
+
+        byte[] page = new byte[pageSize];
+        ByteBuffer buffer = ByteBuffer.wrap(page, 0, available);
+
+        while (buffer.hasRemaining()) {
+            int n = file.read(buffer, pageStart + buffer.position());
+
+            if (n < 0) {
+                throw new IOException("Unexpected end of encrypted file");
+            }
+        }
+
+        mode.seek(pageStart / blockSize);
+        mode.processBlocks(page, 0, page, 0, blocks);
+
+        return page;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
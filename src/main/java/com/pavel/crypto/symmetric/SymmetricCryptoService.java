@@ -2,10 +2,14 @@ package com.pavel.crypto.symmetric;
 
 import com.pavel.crypto.core.BlockCipher;
 import com.pavel.crypto.core.CipherMode;
+import com.pavel.crypto.modes.StreamMode;
 import com.pavel.crypto.padding.NoPadding;
 import com.pavel.crypto.core.Padding;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.Callable;
@@ -16,6 +20,9 @@ import java.util.function.Supplier;
 
 public class SymmetricCryptoService implements AutoCloseable {
 
+    // Размер порции потоковой обработки в блоках
+    private static final int STREAM_CHUNK_BLOCKS = 4096;
+
     private final Supplier<BlockCipher> cipherSupplier;
     private final Supplier<CipherMode> modeSupplier;
     private final Padding padding;
@@ -70,6 +77,13 @@ public class SymmetricCryptoService implements AutoCloseable {
             throw new IllegalStateException("Block size must be > 0");
         }
 
+        // Потоковый режим: паддинг не применяется, длина не меняется
+        if (mode instanceof StreamMode) {
+            byte[] output = new byte[plaintext.length];
+            ((StreamMode) mode).processBytes(plaintext, 0, plaintext.length, output, 0);
+            return output;
+        }
+
         boolean isNoPadding = padding instanceof NoPadding;
 
         int fullBlocks = plaintext.length / blockSize;
@@ -91,18 +105,11 @@ public class SymmetricCryptoService implements AutoCloseable {
 
         byte[] output = new byte[totalBlocks * blockSize];
 
-        int inPos = 0;
-        int outPos = 0;
-
-        // Все полные блоки для любых паддингов
-        int i = 0;
+        // Все полные блоки для любых паддингов — одним вызовом
+        mode.processBlocks(plaintext, 0, output, 0, fullBlocks);
 
-        while (i < fullBlocks) {
-            mode.processBlock(plaintext, inPos, output, outPos);
-            inPos = inPos + blockSize;
-            outPos = outPos + blockSize;
-            i = i + 1;
-        }
+        int inPos = fullBlocks * blockSize;
+        int outPos = fullBlocks * blockSize;
 
         if (isNoPadding) {
             return output;
@@ -147,6 +154,12 @@ public class SymmetricCryptoService implements AutoCloseable {
 
         int blockSize = cipher.getBlockSize();
 
+        if (mode instanceof StreamMode) {
+            byte[] output = new byte[ciphertext.length];
+            ((StreamMode) mode).processBytes(ciphertext, 0, ciphertext.length, output, 0);
+            return output;
+        }
+
         if (ciphertext.length % blockSize != 0) {
             throw new IllegalArgumentException("ciphertext length must be multiple of block size");
         }
@@ -154,16 +167,7 @@ public class SymmetricCryptoService implements AutoCloseable {
         int blocks = ciphertext.length / blockSize;
         byte[] temp = new byte[ciphertext.length];
 
-        int inPos = 0;
-        int outPos = 0;
-        int i = 0;
-
-        while (i < blocks) {
-            mode.processBlock(ciphertext, inPos, temp, outPos);
-            inPos = inPos + blockSize;
-            outPos = outPos + blockSize;
-            i = i + 1;
-        }
+        mode.processBlocks(ciphertext, 0, temp, 0, blocks);
 
         boolean isNoPadding = padding instanceof NoPadding;
 
@@ -270,6 +274,141 @@ public class SymmetricCryptoService implements AutoCloseable {
         Files.write(output, decrypted);
     }
 
+    // Потоковая работа с каналами (память не зависит от размера данных)
+
+    public void encryptStream(ReadableByteChannel in,
+                              WritableByteChannel out,
+                              byte[] key,
+                              byte[] iv) throws IOException {
+        if (in == null || out == null) {
+            throw new IllegalArgumentException("in/out must not be null");
+        }
+
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+
+        BlockCipher cipher = cipherSupplier.get();
+        cipher.init(true, key);
+
+        CipherMode mode = modeSupplier.get();
+        mode.init(true, cipher, iv);
+
+        int blockSize = cipher.getBlockSize();
+        byte[] buffer = new byte[STREAM_CHUNK_BLOCKS * blockSize];
+
+        if (mode instanceof StreamMode) {
+            processStream((StreamMode) mode, in, out, buffer);
+            return;
+        }
+
+        boolean isNoPadding = padding instanceof NoPadding;
+
+        boolean finished = false;
+
+        while (!finished) {
+            int len = readFully(in, buffer, 0);
+            finished = len < buffer.length;
+
+            int fullBlocks = len / blockSize;
+            int tailLen = len % blockSize;
+
+            mode.processBlocks(buffer, 0, buffer, 0, fullBlocks);
+            writeFully(out, buffer, 0, fullBlocks * blockSize);
+
+            if (!finished) {
+                continue;
+            }
+
+            if (isNoPadding) {
+                if (tailLen != 0) {
+                    throw new IllegalArgumentException(
+                            "Data length must be multiple of block size when using NoPadding"
+                    );
+                }
+
+                break;
+            }
+
+            // Последний блок с паддингом (как в encryptBytes)
+            byte[] lastBlock = new byte[blockSize];
+            System.arraycopy(buffer, fullBlocks * blockSize, lastBlock, 0, tailLen);
+
+            padding.addPadding(lastBlock, tailLen);
+
+            mode.processBlock(lastBlock, 0, lastBlock, 0);
+            writeFully(out, lastBlock, 0, blockSize);
+        }
+    }
+
+    public void decryptStream(ReadableByteChannel in,
+                              WritableByteChannel out,
+                              byte[] key,
+                              byte[] iv) throws IOException {
+        if (in == null || out == null) {
+            throw new IllegalArgumentException("in/out must not be null");
+        }
+
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+
+        BlockCipher cipher = cipherSupplier.get();
+        cipher.init(false, key);
+
+        CipherMode mode = modeSupplier.get();
+        mode.init(false, cipher, iv);
+
+        int blockSize = cipher.getBlockSize();
+        byte[] buffer = new byte[STREAM_CHUNK_BLOCKS * blockSize];
+
+        if (mode instanceof StreamMode) {
+            processStream((StreamMode) mode, in, out, buffer);
+            return;
+        }
+
+        boolean isNoPadding = padding instanceof NoPadding;
+
+        // Последний блок придерживаем, пока не ясно, что он последний (в нём паддинг)
+        int carried = 0;
+
+        while (true) {
+            int len = carried + readFully(in, buffer, carried);
+
+            if (len < buffer.length) {
+                if (len % blockSize != 0) {
+                    throw new IllegalArgumentException("ciphertext length must be multiple of block size");
+                }
+
+                int blocks = len / blockSize;
+                mode.processBlocks(buffer, 0, buffer, 0, blocks);
+
+                int dataLength = len;
+
+                if (!isNoPadding && blocks > 0) {
+                    int lastBlockOffset = len - blockSize;
+                    int dataInLastBlock = padding.removePadding(buffer, lastBlockOffset, blockSize);
+
+                    if (dataInLastBlock < 0 || dataInLastBlock > blockSize) {
+                        throw new IllegalStateException("Invalid dataInLastBlock value: " + dataInLastBlock);
+                    }
+
+                    dataLength = lastBlockOffset + dataInLastBlock;
+                }
+
+                writeFully(out, buffer, 0, dataLength);
+                return;
+            }
+
+            int blocks = len / blockSize - 1;
+            mode.processBlocks(buffer, 0, buffer, 0, blocks);
+            writeFully(out, buffer, 0, blocks * blockSize);
+
+            System.arraycopy(buffer, blocks * blockSize, buffer, 0, blockSize);
+            carried = blockSize;
+        }
+    }
+
     // Работа с файлами (асинхронно / многопоточно)
 
     public Future<Void> encryptFileAsync(final Path input,
@@ -302,6 +441,45 @@ public class SymmetricCryptoService implements AutoCloseable {
         return executor.submit(task);
     }
 
+    // Вспомогательные методы потоковой обработки
+
+    private void processStream(StreamMode mode,
+                               ReadableByteChannel in,
+                               WritableByteChannel out,
+                               byte[] buffer) throws IOException {
+        while (true) {
+            int len = readFully(in, buffer, 0);
+
+            mode.processBytes(buffer, 0, len, buffer, 0);
+            writeFully(out, buffer, 0, len);
+
+            if (len < buffer.length) {
+                return;
+            }
+        }
+    }
+
+    // Читать, пока буфер не заполнен или вход не кончился; вернуть число прочитанных байт
+    private int readFully(ReadableByteChannel in, byte[] buffer, int offset) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buffer, offset, buffer.length - offset);
+
+        while (bb.hasRemaining()) {
+            if (in.read(bb) < 0) {
+                break;
+            }
+        }
+
+        return bb.position() - offset;
+    }
+
+    private void writeFully(WritableByteChannel out, byte[] buffer, int offset, int length) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buffer, offset, length);
+
+        while (bb.hasRemaining()) {
+            out.write(bb);
+        }
+    }
+
     // Управление пулом потоков
 
     @Override
@@ -0,0 +1,108 @@
+package com.pavel.crypto.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * XOR блоков по 8 байт за раз через long-представления массивов и буферов.
+ *
+ * Порядок байт берётся нативный и одинаковый для массивов и буферов,
+ * поэтому результат совпадает с побайтовым XOR независимо от order() буфера.
+ */
+public final class BlockXor {
+
+    private static final VarHandle ARRAY_LONG =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final VarHandle BUFFER_LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private BlockXor() {
+    }
+
+    // out = a XOR b, все аргументы — массивы
+    public static void xor(byte[] a, int aOff,
+                           byte[] b, int bOff,
+                           byte[] out, int outOff,
+                           int length) {
+        int i = 0;
+
+        while (i + 8 <= length) {
+            long x = (long) ARRAY_LONG.get(a, aOff + i);
+            long y = (long) ARRAY_LONG.get(b, bOff + i);
+
+            ARRAY_LONG.set(out, outOff + i, x ^ y);
+            i = i + 8;
+        }
+
+        while (i < length) {
+            out[outOff + i] = (byte) (a[aOff + i] ^ b[bOff + i]);
+            i = i + 1;
+        }
+    }
+
+    // out = a XOR b, где a — буфер, b и out — массивы
+    public static void xor(ByteBuffer a, int aOff,
+                           byte[] b, int bOff,
+                           byte[] out, int outOff,
+                           int length) {
+        int i = 0;
+
+        while (i + 8 <= length) {
+            long x = (long) BUFFER_LONG.get(a, aOff + i);
+            long y = (long) ARRAY_LONG.get(b, bOff + i);
+
+            ARRAY_LONG.set(out, outOff + i, x ^ y);
+            i = i + 8;
+        }
+
+        while (i < length) {
+            out[outOff + i] = (byte) (a.get(aOff + i) ^ b[bOff + i]);
+            i = i + 1;
+        }
+    }
+
+    // out = a XOR b, где a и b — массивы, out — буфер
+    public static void xor(byte[] a, int aOff,
+                           byte[] b, int bOff,
+                           ByteBuffer out, int outOff,
+                           int length) {
+        int i = 0;
+
+        while (i + 8 <= length) {
+            long x = (long) ARRAY_LONG.get(a, aOff + i);
+            long y = (long) ARRAY_LONG.get(b, bOff + i);
+
+            BUFFER_LONG.set(out, outOff + i, x ^ y);
+            i = i + 8;
+        }
+
+        while (i < length) {
+            out.put(outOff + i, (byte) (a[aOff + i] ^ b[bOff + i]));
+            i = i + 1;
+        }
+    }
+
+    // out = a XOR b, где a и out — буферы, b — массив
+    public static void xor(ByteBuffer a, int aOff,
+                           byte[] b, int bOff,
+                           ByteBuffer out, int outOff,
+                           int length) {
+        int i = 0;
+
+        while (i + 8 <= length) {
+            long x = (long) BUFFER_LONG.get(a, aOff + i);
+            long y = (long) ARRAY_LONG.get(b, bOff + i);
+
+            BUFFER_LONG.set(out, outOff + i, x ^ y);
+            i = i + 8;
+        }
+
+        while (i < length) {
+            out.put(outOff + i, (byte) (a.get(aOff + i) ^ b[bOff + i]));
+            i = i + 1;
+        }
+    }
+}